@@ -3,9 +3,12 @@ package applications;
 import enums.DocumentType;
 import enums.RejectionReason;
 import model.Applicant;
+import model.ApplicantView;
 import model.Document;
 import model.EvaluationResult;
 import model.Publication;
+import model.PublicationList;
+import model.StringDictionary;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -15,15 +18,16 @@ import java.util.List;
  * This is an abstract class for all applications.
  * It keeps the same data and methods for every scholarship type.
  */
-public abstract class Application {
+public abstract class Application implements ApplicantView {
 
     protected final String applicantId;          // Applicant ID
-    protected final String name;                 // Applicant name
+    protected final StringDictionary dictionary; // Decodes the name and publication titles
+    protected final long nameCode;               // Applicant name, see StringDictionary.encodeName
     protected final double gpa;                  // Grade point average
     protected final double income;               // Monthly income
     protected boolean transcriptValid;           // true if transcript is ok
     protected final List<Document> documents;    // All documents
-    protected final List<Publication> publications; // All publications
+    protected final PublicationList publications;  // All publications (titles + impact factors)
 
     private static final DocumentType ENR = DocumentType.ENR; // Enrollment document
 
@@ -35,13 +39,14 @@ public abstract class Application {
 
         // Remove extra spaces
         this.applicantId = applicantId.trim();
-        this.name = name.trim();
+        this.dictionary = new StringDictionary();
+        this.nameCode = dictionary.encodeName(name.trim());
         this.gpa = gpa;
         this.income = income;
 
         this.transcriptValid = false;
         this.documents = new ArrayList<>();
-        this.publications = new ArrayList<>();
+        this.publications = new PublicationList(dictionary);
     }
 
     /**
@@ -52,29 +57,23 @@ public abstract class Application {
             throw new IllegalArgumentException("Cannot create Application from null Applicant");
         }
 
-        validateConstructorParameters(applicant.getId(), applicant.getName(), applicant.getGpa(), applicant.getIncome());
-
+        // The Applicant constructor already checked these values, and the
+        // name code and its dictionary are shared, so the name is not decoded here
         this.applicantId = applicant.getId().trim();
-        this.name = applicant.getName().trim();
+        this.dictionary = applicant.getDictionary();
+        this.nameCode = applicant.getNameCode();
         this.gpa = applicant.getGpa();
         this.income = applicant.getIncome();
         this.transcriptValid = applicant.isTranscriptValid();
 
-        // Copy documents
-        this.documents = new ArrayList<>();
-        for (Document d : applicant.getDocuments()) {
-            if (d != null) {
-                this.documents.add(new Document(d));
-            }
+        // Copy documents (lists are sized exactly)
+        this.documents = new ArrayList<>(applicant.getDocumentCount());
+        for (int i = 0; i < applicant.getDocumentCount(); i++) {
+            this.documents.add(new Document(applicant.getDocumentAt(i)));
         }
 
         // Copy publications
-        this.publications = new ArrayList<>();
-        for (Publication p : applicant.getPublications()) {
-            if (p != null) {
-                this.publications.add(new Publication(p));
-            }
-        }
+        this.publications = applicant.getPublicationList();
     }
 
     /**
@@ -86,24 +85,20 @@ public abstract class Application {
         }
 
         this.applicantId = other.applicantId;
-        this.name = other.name;
+        this.dictionary = other.dictionary;
+        this.nameCode = other.nameCode;
         this.gpa = other.gpa;
         this.income = other.income;
         this.transcriptValid = other.transcriptValid;
 
-        this.documents = new ArrayList<>();
+        this.documents = new ArrayList<>(other.documents.size());
         for (Document d : other.documents) {
             if (d != null) {
                 this.documents.add(new Document(d));
             }
         }
 
-        this.publications = new ArrayList<>();
-        for (Publication p : other.publications) {
-            if (p != null) {
-                this.publications.add(new Publication(p));
-            }
-        }
+        this.publications = new PublicationList(other.publications);
     }
 
     /**
@@ -135,8 +130,47 @@ public abstract class Application {
      * @return RejectionReason if not OK, or null if all is OK
      */
     protected RejectionReason performGeneralChecks() {
+        return performGeneralChecks(this);
+    }
+
+    /**
+     * Check basic rules for any applicant view.
+     *
+     * @return RejectionReason if not OK, or null if all is OK
+     */
+    protected static RejectionReason performGeneralChecks(ApplicantView applicant) {
+        return checkGeneralRules(applicant.hasDocument(ENR), applicant.isTranscriptValid(), applicant.getGpa());
+    }
+
+    /**
+     * Check basic rules for any applicant view, from outside the class.
+     *
+     * @return RejectionReason if not OK, or null if all is OK
+     */
+    public static RejectionReason checkGeneralRules(ApplicantView applicant) {
+        return performGeneralChecks(applicant);
+    }
+
+    /**
+     * Same rules as performGeneralChecks, but from plain values.
+     * This lets the reader reject applicants before any object is built.
+     *
+     * @return RejectionReason if not OK, or null if all is OK
+     */
+    public static RejectionReason checkGeneralRules(boolean hasEnrollment, boolean transcriptValid, double gpa) {
+        RejectionReason reason = generalRules(hasEnrollment, transcriptValid, gpa);
+        if (DecisionTrace.ENABLED) {
+            DecisionTrace.step("general.enr", hasEnrollment);
+            DecisionTrace.step("general.transcript", transcriptValid);
+            DecisionTrace.step("general.gpa", gpa);
+            DecisionTrace.step("general", reason == null ? "passed" : reason.name());
+        }
+        return reason;
+    }
+
+    private static RejectionReason generalRules(boolean hasEnrollment, boolean transcriptValid, double gpa) {
         // Must have enrollment paper
-        if (!hasDocument(ENR)) {
+        if (!hasEnrollment) {
             return RejectionReason.MISSING_ENROLLMENT;
         }
 
@@ -152,6 +186,7 @@ public abstract class Application {
         return null;
     }
 
+    @Override
     public boolean hasDocument(DocumentType type) {
         if (type == null) {
             return false;
@@ -202,26 +237,46 @@ public abstract class Application {
     }
 
     // Getters
+    @Override
     public String getApplicantId() {
         return applicantId;
     }
 
+    @Override
     public String getName() {
-        return name;
+        return dictionary.decodeName(nameCode);
     }
 
+    @Override
     public double getGpa() {
         return gpa;
     }
 
+    @Override
     public double getIncome() {
         return income;
     }
 
+    @Override
     public boolean isTranscriptValid() {
         return transcriptValid;
     }
 
+    @Override
+    public int getPublicationCount() {
+        return publications.size();
+    }
+
+    @Override
+    public double getImpactFactor(int index) {
+        return publications.getImpactFactor(index);
+    }
+
+    @Override
+    public double getImpactFactorSum() {
+        return publications.getImpactFactorSum();
+    }
+
     /**
      * Get copy of document list (safe)
      */
@@ -233,6 +288,6 @@ public abstract class Application {
      * Get copy of publication list (safe)
      */
     public List<Publication> getPublications() {
-        return Collections.unmodifiableList(new ArrayList<>(publications));
+        return Collections.unmodifiableList(publications.toList());
     }
 }
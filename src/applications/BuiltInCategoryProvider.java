@@ -0,0 +1,111 @@
+package applications;
+
+import enums.AwardType;
+import enums.ScholarshipCategory;
+import model.Applicant;
+import model.ApplicantView;
+import model.EvaluationResult;
+import model.FamilyInfo;
+
+/**
+ * Provider for the three standard categories:
+ * 11 = Merit, 22 = Need, 33 = Research.
+ */
+public final class BuiltInCategoryProvider implements ScholarshipCategoryProvider {
+
+    public static final BuiltInCategoryProvider MERIT = new BuiltInCategoryProvider(ScholarshipCategory.MERIT, 11);
+    public static final BuiltInCategoryProvider NEED = new BuiltInCategoryProvider(ScholarshipCategory.NEED, 22);
+    public static final BuiltInCategoryProvider RESEARCH = new BuiltInCategoryProvider(ScholarshipCategory.RESEARCH, 33);
+
+    private final ScholarshipCategory category;
+    private final int prefix;
+
+    private BuiltInCategoryProvider(ScholarshipCategory category, int prefix) {
+        this.category = category;
+        this.prefix = prefix;
+    }
+
+    public ScholarshipCategory getCategory() {
+        return category;
+    }
+
+    @Override
+    public int getPrefix() {
+        return prefix;
+    }
+
+    @Override
+    public String getLabel() {
+        return category.toString();
+    }
+
+    @Override
+    public boolean needsFamilyInfo() {
+        return category == ScholarshipCategory.NEED;
+    }
+
+    @Override
+    public Application createApplication(Applicant applicant, FamilyInfo familyInfo) {
+        switch (category) {
+            case MERIT:
+                return new MeritApplication(applicant);
+            case NEED:
+                return new NeedApplication(applicant, familyInfo);
+            default:
+                return new ResearchApplication(applicant);
+        }
+    }
+
+    @Override
+    public EvaluationResult evaluate(ApplicantView applicant, FamilyInfo familyInfo) {
+        switch (category) {
+            case MERIT:
+                return MeritApplication.evaluate(applicant);
+            case NEED:
+                return NeedApplication.evaluate(applicant, familyInfo);
+            default:
+                return ResearchApplication.evaluate(applicant);
+        }
+    }
+
+    /**
+     * Merit: GPA. Need: income headroom below the adjusted threshold.
+     * Research: average impact factor.
+     */
+    @Override
+    public double getPriority(ApplicantView applicant, FamilyInfo familyInfo) {
+        switch (category) {
+            case MERIT:
+                return applicant.getGpa();
+            case NEED:
+                return NeedApplication.getIncomeHeadroom(applicant, familyInfo, PolicyThresholds.DEFAULT);
+            default:
+                return ResearchApplication.getAverageImpactFactor(applicant);
+        }
+    }
+
+    @Override
+    public String getDuration(ApplicantView applicant, FamilyInfo familyInfo, AwardType type) {
+        switch (category) {
+            case MERIT:
+                return MeritApplication.getDuration(applicant, type);
+            case NEED:
+                return NeedApplication.getDuration(type);
+            default:
+                return ResearchApplication.getDuration(applicant, type);
+        }
+    }
+
+    @Override
+    public EvaluationResult applyCategoryRules(ApplicantView applicant, FamilyInfo familyInfo,
+                                               PolicyThresholds policy) {
+        switch (category) {
+            case MERIT:
+                return MeritApplication.applyCategoryRules(applicant, policy);
+            case NEED:
+                return NeedApplication.applyCategoryRules(applicant, familyInfo, policy);
+            default:
+                return ResearchApplication.applyCategoryRules(applicant, policy);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package applications;
+
+import model.EvaluationResult;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Records which rules fired for an applicant, with the values they used
+ * (adjusted thresholds, average impact, duration) and the time taken.
+ *
+ * Tracing is turned on with the system property scholarship.trace=true.
+ * Then applicants are selected by ID (scholarship.trace.ids=id1,id2,...)
+ * and/or by a sampling rate between 0 and 1 (scholarship.trace.sample).
+ * Sampling uses the hash of the ID, so the same applicants are traced in
+ * every run. Finished traces go to System.err unless another sink is set.
+ *
+ * ENABLED is a static final constant. Every call site is guarded with
+ * "if (DecisionTrace.ENABLED ...)", so when tracing is off the JIT drops
+ * the whole branch and the rules run as before (see tools.TraceBenchmark).
+ * The trace of the current decision is kept per thread, so tracing also
+ * works with the pipelined evaluator.
+ */
+public final class DecisionTrace {
+
+    /** True when the JVM was started with -Dscholarship.trace=true. */
+    public static final boolean ENABLED = Boolean.getBoolean("scholarship.trace");
+
+    private static final int SAMPLE_SCALE = 1_000_000;
+    private static final ThreadLocal<DecisionTrace> CURRENT = new ThreadLocal<>();
+
+    private static volatile Set<String> tracedIds = parseIds(System.getProperty("scholarship.trace.ids", ""));
+    private static volatile int sampleLimit = parseSample(System.getProperty("scholarship.trace.sample", "0"));
+    private static volatile Consumer<DecisionTrace> sink = trace -> System.err.println(trace);
+
+    private final String applicantId;
+    private final long startNanos;
+    private final List<String> steps;
+    private long elapsedNanos;
+    private EvaluationResult result;
+
+    private DecisionTrace(String applicantId) {
+        this.applicantId = applicantId;
+        this.startNanos = System.nanoTime();
+        this.steps = new ArrayList<>();
+    }
+
+    /**
+     * Changes which applicants are traced (only has an effect when ENABLED).
+     *
+     * @param applicantIds IDs that are always traced
+     * @param sampleRate   share of the other applicants that is traced, 0 to 1
+     */
+    public static void select(Set<String> applicantIds, double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Sample rate must be between 0 and 1: " + sampleRate);
+        }
+        tracedIds = applicantIds == null ? new HashSet<>() : new HashSet<>(applicantIds);
+        sampleLimit = (int) Math.round(sampleRate * SAMPLE_SCALE);
+    }
+
+    /**
+     * Sets where finished traces go.
+     */
+    public static void setSink(Consumer<DecisionTrace> newSink) {
+        if (newSink == null) {
+            throw new IllegalArgumentException("Sink cannot be null");
+        }
+        sink = newSink;
+    }
+
+    /**
+     * Starts a trace on this thread if the applicant is selected.
+     * Call only when ENABLED; every true result must be followed by end().
+     *
+     * @return true if the decision of this applicant is traced
+     */
+    public static boolean begin(String applicantId) {
+        if (!isSelected(applicantId)) {
+            return false;
+        }
+        CURRENT.set(new DecisionTrace(applicantId));
+        return true;
+    }
+
+    /**
+     * Adds one step to the current trace, if there is one.
+     * Call only when ENABLED.
+     *
+     * @param rule  rule or value name, for example "need.multiplier"
+     * @param value what the rule saw or decided
+     */
+    public static void step(String rule, Object value) {
+        DecisionTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.steps.add(rule + "=" + value);
+        }
+    }
+
+    /**
+     * Finishes the current trace and passes it to the sink.
+     *
+     * @return the result, unchanged
+     */
+    public static EvaluationResult end(EvaluationResult result) {
+        DecisionTrace trace = CURRENT.get();
+        if (trace != null) {
+            CURRENT.remove();
+            trace.elapsedNanos = System.nanoTime() - trace.startNanos;
+            trace.result = result;
+            sink.accept(trace);
+        }
+        return result;
+    }
+
+    /**
+     * Drops the current trace without passing it to the sink.
+     */
+    public static void cancel() {
+        CURRENT.remove();
+    }
+
+    private static boolean isSelected(String applicantId) {
+        if (applicantId == null) {
+            return false;
+        }
+        if (tracedIds.contains(applicantId)) {
+            return true;
+        }
+        return sampleLimit > 0 && (applicantId.hashCode() & 0x7fffffff) % SAMPLE_SCALE < sampleLimit;
+    }
+
+    private static Set<String> parseIds(String ids) {
+        Set<String> set = new HashSet<>();
+        for (String id : ids.split(",")) {
+            if (!id.trim().isEmpty()) {
+                set.add(id.trim());
+            }
+        }
+        return set;
+    }
+
+    private static int parseSample(String rate) {
+        try {
+            double r = Double.parseDouble(rate.trim());
+            return (int) Math.round(Math.max(0, Math.min(1, r)) * SAMPLE_SCALE);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid scholarship.trace.sample: " + rate);
+            return 0;
+        }
+    }
+
+    public String getApplicantId() {
+        return applicantId;
+    }
+
+    public List<String> getSteps() {
+        return new ArrayList<>(steps);
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public EvaluationResult getResult() {
+        return result;
+    }
+
+    /**
+     * Example:
+     * TRACE 22214969 (14.2 us): general.enr=true, general.transcript=true, ... -> Applicant ID: 22214969, ...
+     */
+    @Override
+    public String toString() {
+        return "TRACE " + applicantId + String.format(" (%.1f us): ", elapsedNanos / 1000.0)
+                + String.join(", ", steps) + " -> " + (result == null ? "no result" : result.getFormattedResult());
+    }
+}
@@ -5,6 +5,7 @@ import enums.DocumentType;
 import enums.RejectionReason;
 import enums.ScholarshipCategory;
 import model.Applicant;
+import model.ApplicantView;
 import model.EvaluationResult;
 
 // Merit-based Scholarship: Focuses on GPA and recommendations.
@@ -20,24 +21,56 @@ public class MeritApplication extends Application {
     // Implements the specific evaluation rules for a Merit-based Scholarship.
     @Override
     public EvaluationResult evaluate() {
+        return evaluate(this);
+    }
+
+    // Merit rules on any applicant view (also used by the off-heap store).
+    public static EvaluationResult evaluate(ApplicantView applicant) {
+        return evaluate(applicant, PolicyThresholds.DEFAULT);
+    }
+
+    // Merit rules with the given policy thresholds.
+    public static EvaluationResult evaluate(ApplicantView applicant, PolicyThresholds policy) {
+        if (DecisionTrace.ENABLED && DecisionTrace.begin(applicant.getApplicantId())) {
+            return DecisionTrace.end(decide(applicant, policy));
+        }
+        return decide(applicant, policy);
+    }
+
+    // General checks, then the Merit rules.
+    private static EvaluationResult decide(ApplicantView applicant, PolicyThresholds policy) {
         // --- 1. Perform General Checks (Priority 1-3 Rejections) ---
-        RejectionReason generalReason = performGeneralChecks();
+        RejectionReason generalReason = performGeneralChecks(applicant);
         if (generalReason != null) {
-            return new EvaluationResult(applicantId, name, SCHOLARSHIP_TYPE, generalReason.getMessage());
+            return new EvaluationResult(applicant.getApplicantId(), applicant.getName(), SCHOLARSHIP_TYPE,
+                    generalReason.getMessage());
         }
+        return applyCategoryRules(applicant, policy);
+    }
+
+    // Merit-specific rules only; the general checks must already have passed.
+    public static EvaluationResult applyCategoryRules(ApplicantView applicant, PolicyThresholds policy) {
+        String applicantId = applicant.getApplicantId();
+        String name = applicant.getName();
+        double gpa = applicant.getGpa();
 
         AwardType awardType;
         String specificRejectionReason = null;
 
         // --- 2. Apply Merit-Based GPA Rules ---
-        if (gpa >= 3.20) {
+        if (gpa >= policy.getMeritFullGpa()) {          // 3.20 by default
             awardType = AwardType.FULL;
-        } else if (gpa >= 3.00) {
+        } else if (gpa >= policy.getMeritHalfGpa()) {   // 3.00 by default
             awardType = AwardType.HALF;
         } else {
             // GPA < 3.00 -> Rejected (Specific rule)
             awardType = null;
-            specificRejectionReason = "GPA below 3.0";
+            specificRejectionReason = policy.getMeritRejectionMessage();
+        }
+        if (DecisionTrace.ENABLED) {
+            DecisionTrace.step("merit.gpa", gpa);
+            DecisionTrace.step("merit.thresholds", policy.getMeritFullGpa() + "/" + policy.getMeritHalfGpa());
+            DecisionTrace.step("merit.award", awardType != null ? awardType : "rejected");
         }
 
         // --- 3. Final Decision ---
@@ -46,13 +79,16 @@ public class MeritApplication extends Application {
         }
 
         // --- 4. Determine Duration ---
-        String duration;
-        if (hasDocument(REC)) {
-            duration = "2 years";
-        } else {
-            duration = "1 year";
+        String duration = getDuration(applicant, awardType);
+        if (DecisionTrace.ENABLED) {
+            DecisionTrace.step("merit.rec", applicant.hasDocument(REC));
         }
 
         return new EvaluationResult(applicantId, name, SCHOLARSHIP_TYPE, awardType.toString(), duration);
     }
+
+    // Duration of a Merit award of the given type (the type does not change it).
+    public static String getDuration(ApplicantView applicant, AwardType awardType) {
+        return applicant.hasDocument(REC) ? "2 years" : "1 year";
+    }
 }
@@ -5,6 +5,7 @@ import enums.DocumentType;
 import enums.RejectionReason;
 import enums.ScholarshipCategory;
 import model.Applicant;
+import model.ApplicantView;
 import model.EvaluationResult;
 import model.FamilyInfo;
 
@@ -24,41 +25,73 @@ public class NeedApplication extends Application {
         }
     }
 
+    // Copy of the family info, or null if it was missing.
+    public FamilyInfo getFamilyInfo() {
+        return familyInfo == null ? null : new FamilyInfo(familyInfo);
+    }
+
     // Implements the specific evaluation rules for a Need-based Scholarship.
     @Override
     public EvaluationResult evaluate() {
+        return evaluate(this, familyInfo);
+    }
+
+    // Need rules on any applicant view (also used by the off-heap store).
+    public static EvaluationResult evaluate(ApplicantView applicant, FamilyInfo familyInfo) {
+        return evaluate(applicant, familyInfo, PolicyThresholds.DEFAULT);
+    }
+
+    // Need rules with the given policy thresholds.
+    public static EvaluationResult evaluate(ApplicantView applicant, FamilyInfo familyInfo, PolicyThresholds policy) {
+        if (DecisionTrace.ENABLED && DecisionTrace.begin(applicant.getApplicantId())) {
+            return DecisionTrace.end(decide(applicant, familyInfo, policy));
+        }
+        return decide(applicant, familyInfo, policy);
+    }
+
+    // General checks, then the Need rules.
+    private static EvaluationResult decide(ApplicantView applicant, FamilyInfo familyInfo, PolicyThresholds policy) {
         // --- 1. Perform General Checks (Priority 1-3 Rejections) ---
-        RejectionReason generalReason = performGeneralChecks();
+        RejectionReason generalReason = performGeneralChecks(applicant);
         if (generalReason != null) {
-            return new EvaluationResult(applicantId, name, SCHOLARSHIP_TYPE, generalReason.getMessage());
+            return new EvaluationResult(applicant.getApplicantId(), applicant.getName(), SCHOLARSHIP_TYPE,
+                    generalReason.getMessage());
         }
+        return applyCategoryRules(applicant, familyInfo, policy);
+    }
+
+    // Need-specific rules only; the general checks must already have passed.
+    public static EvaluationResult applyCategoryRules(ApplicantView applicant, FamilyInfo familyInfo,
+                                                      PolicyThresholds policy) {
+        String applicantId = applicant.getApplicantId();
+        String name = applicant.getName();
 
         // --- 2. Missing mandatory information (Priority 4) ---
+        if (DecisionTrace.ENABLED) {
+            DecisionTrace.step("need.familyInfo", familyInfo != null);
+        }
         if (familyInfo == null) {
             RejectionReason reason = RejectionReason.MISSING_MANDATORY_DOCUMENT;
             return new EvaluationResult(applicantId, name, SCHOLARSHIP_TYPE, reason.getMessage());
         }
 
         // --- 3. Calculate Adjusted Income Thresholds ---
-        double fullThreshold = 10000.0;
-        double halfThreshold = 15000.0;
-        double multiplier = 1.0;
-
-        // Modifier 1: Savings Document (SAV) increases thresholds by 20%
-        if (hasDocument(SAV)) {
-            multiplier += 0.20;
-        }
-
-        // Modifier 2: Dependents (3 or more) increases thresholds by an ADDITIONAL 10%
-        if (familyInfo.getDependents() >= 3) {
-            multiplier += 0.10;
-        }
+        double fullThreshold = policy.getNeedFullIncome();   // 10000 by default
+        double halfThreshold = policy.getNeedHalfIncome();   // 15000 by default
+        double multiplier = thresholdMultiplier(applicant, familyInfo, policy);
 
         double adjustedFullThreshold = fullThreshold * multiplier;
         double adjustedHalfThreshold = halfThreshold * multiplier;
 
         // Important: Monthly income refers ONLY to the student's own income
-        double totalIncome = this.income; // familyIncome is not added
+        double totalIncome = applicant.getIncome(); // familyIncome is not added
+        if (DecisionTrace.ENABLED) {
+            DecisionTrace.step("need.sav", applicant.hasDocument(SAV));
+            DecisionTrace.step("need.dependents", familyInfo.getDependents());
+            DecisionTrace.step("need.multiplier", multiplier);
+            DecisionTrace.step("need.adjustedThresholds", adjustedFullThreshold + "/" + adjustedHalfThreshold);
+            DecisionTrace.step("need.income", totalIncome);
+        }
 
         AwardType awardType;
 
@@ -74,8 +107,41 @@ public class NeedApplication extends Application {
         }
 
         // --- 5. Determine Duration ---
-        String duration = "1 year";
+        String duration = getDuration(awardType);
 
         return new EvaluationResult(applicantId, name, SCHOLARSHIP_TYPE, awardType.toString(), duration);
     }
+
+    // Duration of a Need award of the given type (always 1 year).
+    public static String getDuration(AwardType awardType) {
+        return "1 year";
+    }
+
+    // Helper to calculate the threshold multiplier from SAV and dependents.
+    private static double thresholdMultiplier(ApplicantView applicant, FamilyInfo familyInfo,
+                                              PolicyThresholds policy) {
+        double multiplier = 1.0;
+
+        // Modifier 1: Savings Document (SAV) increases thresholds by 20%
+        if (applicant.hasDocument(SAV)) {
+            multiplier += policy.getSavingsBonus();
+        }
+
+        // Modifier 2: Dependents (3 or more) increases thresholds by an ADDITIONAL 10%
+        if (familyInfo.getDependents() >= 3) {
+            multiplier += policy.getDependentsBonus();
+        }
+        return multiplier;
+    }
+
+    // How far the income is below the adjusted half threshold (higher = more need).
+    // Returns negative infinity when there is no family info.
+    public static double getIncomeHeadroom(ApplicantView applicant, FamilyInfo familyInfo,
+                                           PolicyThresholds policy) {
+        if (familyInfo == null) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        double adjustedHalfThreshold = policy.getNeedHalfIncome() * thresholdMultiplier(applicant, familyInfo, policy);
+        return adjustedHalfThreshold - applicant.getIncome();
+    }
 }
@@ -0,0 +1,132 @@
+package applications;
+
+/**
+ * One set of policy thresholds used by the category rules.
+ * DEFAULT holds the current policy. Other sets are used by the what-if
+ * simulation to see what would change with different cut-offs.
+ */
+public final class PolicyThresholds {
+
+    /** The policy in use today. */
+    public static final PolicyThresholds DEFAULT = new PolicyThresholds("current",
+            3.20, 3.00, 10000.0, 15000.0, 1.50, 1.00, 0.20, 0.10);
+
+    private final String name;
+    private final double meritFullGpa;       // Merit: Full award from this GPA
+    private final double meritHalfGpa;       // Merit: Half award from this GPA
+    private final double needFullIncome;     // Need: Full award up to this income (before modifiers)
+    private final double needHalfIncome;     // Need: Half award up to this income (before modifiers)
+    private final double researchFullImpact; // Research: Full award from this average impact
+    private final double researchHalfImpact; // Research: Half award from this average impact
+    private final double savingsBonus;       // Need: threshold increase with a SAV document
+    private final double dependentsBonus;    // Need: threshold increase with 3+ dependents
+    private final String meritRejectionMessage;
+
+    public PolicyThresholds(String name, double meritFullGpa, double meritHalfGpa,
+                            double needFullIncome, double needHalfIncome,
+                            double researchFullImpact, double researchHalfImpact,
+                            double savingsBonus, double dependentsBonus) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Policy name cannot be empty");
+        }
+        if (meritHalfGpa > meritFullGpa) {
+            throw new IllegalArgumentException("Merit half GPA cannot be above the full GPA");
+        }
+        if (needFullIncome > needHalfIncome) {
+            throw new IllegalArgumentException("Need full income cannot be above the half income");
+        }
+        if (researchHalfImpact > researchFullImpact) {
+            throw new IllegalArgumentException("Research half impact cannot be above the full impact");
+        }
+        if (savingsBonus < 0 || dependentsBonus < 0) {
+            throw new IllegalArgumentException("Bonuses cannot be negative");
+        }
+
+        this.name = name.trim();
+        this.meritFullGpa = meritFullGpa;
+        this.meritHalfGpa = meritHalfGpa;
+        this.needFullIncome = needFullIncome;
+        this.needHalfIncome = needHalfIncome;
+        this.researchFullImpact = researchFullImpact;
+        this.researchHalfImpact = researchHalfImpact;
+        this.savingsBonus = savingsBonus;
+        this.dependentsBonus = dependentsBonus;
+        this.meritRejectionMessage = "GPA below " + meritHalfGpa;
+    }
+
+    /**
+     * Parses one line of a policy file:
+     * name, meritFullGpa, meritHalfGpa, needFullIncome, needHalfIncome,
+     * researchFullImpact, researchHalfImpact [, savingsBonus, dependentsBonus]
+     *
+     * @throws IllegalArgumentException if the line is malformed
+     */
+    public static PolicyThresholds parse(String line) {
+        String[] parts = line.split(",");
+        if (parts.length != 7 && parts.length != 9) {
+            throw new IllegalArgumentException("Policy line needs 7 or 9 values: " + line);
+        }
+        try {
+            double savings = parts.length == 9 ? Double.parseDouble(parts[7].trim()) : DEFAULT.savingsBonus;
+            double dependents = parts.length == 9 ? Double.parseDouble(parts[8].trim()) : DEFAULT.dependentsBonus;
+            return new PolicyThresholds(parts[0],
+                    Double.parseDouble(parts[1].trim()), Double.parseDouble(parts[2].trim()),
+                    Double.parseDouble(parts[3].trim()), Double.parseDouble(parts[4].trim()),
+                    Double.parseDouble(parts[5].trim()), Double.parseDouble(parts[6].trim()),
+                    savings, dependents);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in policy line: " + line);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getMeritFullGpa() {
+        return meritFullGpa;
+    }
+
+    public double getMeritHalfGpa() {
+        return meritHalfGpa;
+    }
+
+    public double getNeedFullIncome() {
+        return needFullIncome;
+    }
+
+    public double getNeedHalfIncome() {
+        return needHalfIncome;
+    }
+
+    public double getResearchFullImpact() {
+        return researchFullImpact;
+    }
+
+    public double getResearchHalfImpact() {
+        return researchHalfImpact;
+    }
+
+    public double getSavingsBonus() {
+        return savingsBonus;
+    }
+
+    public double getDependentsBonus() {
+        return dependentsBonus;
+    }
+
+    /**
+     * @return rejection text for a Merit GPA below the half threshold, e.g. "GPA below 3.0"
+     */
+    public String getMeritRejectionMessage() {
+        return meritRejectionMessage;
+    }
+
+    @Override
+    public String toString() {
+        return "PolicyThresholds{" + name + ": merit=" + meritFullGpa + "/" + meritHalfGpa
+                + ", need=" + needFullIncome + "/" + needHalfIncome
+                + ", research=" + researchFullImpact + "/" + researchHalfImpact
+                + ", savings=" + savingsBonus + ", dependents=" + dependentsBonus + "}";
+    }
+}
@@ -5,8 +5,8 @@ import enums.DocumentType;
 import enums.RejectionReason;
 import enums.ScholarshipCategory;
 import model.Applicant;
+import model.ApplicantView;
 import model.EvaluationResult;
-import model.Publication;
 
 // Research Grant: Focuses on scientific contribution (impact factor, approval).
 public class ResearchApplication extends Application {
@@ -22,15 +22,45 @@ public class ResearchApplication extends Application {
     // Implements the specific evaluation rules for a Research Grant.
     @Override
     public EvaluationResult evaluate() {
+        return evaluate(this);
+    }
+
+    // Research rules on any applicant view (also used by the off-heap store).
+    public static EvaluationResult evaluate(ApplicantView applicant) {
+        return evaluate(applicant, PolicyThresholds.DEFAULT);
+    }
+
+    // Research rules with the given policy thresholds.
+    public static EvaluationResult evaluate(ApplicantView applicant, PolicyThresholds policy) {
+        if (DecisionTrace.ENABLED && DecisionTrace.begin(applicant.getApplicantId())) {
+            return DecisionTrace.end(decide(applicant, policy));
+        }
+        return decide(applicant, policy);
+    }
+
+    // General checks, then the Research rules.
+    private static EvaluationResult decide(ApplicantView applicant, PolicyThresholds policy) {
         // --- 1. Perform General Checks (Priority 1-3 Rejections) ---
-        RejectionReason generalReason = performGeneralChecks();
+        RejectionReason generalReason = performGeneralChecks(applicant);
         if (generalReason != null) {
-            return new EvaluationResult(applicantId, name, SCHOLARSHIP_TYPE, generalReason.getMessage());
+            return new EvaluationResult(applicant.getApplicantId(), applicant.getName(), SCHOLARSHIP_TYPE,
+                    generalReason.getMessage());
         }
+        return applyCategoryRules(applicant, policy);
+    }
+
+    // Research-specific rules only; the general checks must already have passed.
+    public static EvaluationResult applyCategoryRules(ApplicantView applicant, PolicyThresholds policy) {
+        String applicantId = applicant.getApplicantId();
+        String name = applicant.getName();
 
         // --- 2. Check Mandatory Research Documents/Publications (Priority 6) ---
-        boolean hasPublications = !publications.isEmpty();
-        boolean hasGrantProposal = hasDocument(GRP);
+        boolean hasPublications = applicant.getPublicationCount() > 0;
+        boolean hasGrantProposal = applicant.hasDocument(GRP);
+        if (DecisionTrace.ENABLED) {
+            DecisionTrace.step("research.publications", applicant.getPublicationCount());
+            DecisionTrace.step("research.grp", hasGrantProposal);
+        }
 
         if (!hasPublications && !hasGrantProposal) {
             RejectionReason reason = RejectionReason.MISSING_PUBLICATION_OR_PROPOSAL;
@@ -38,17 +68,19 @@ public class ResearchApplication extends Application {
         }
 
         // --- 3. Calculate Average Impact Factor ---
-        double avgImpact = calculateAverageImpactFactor();
+        double avgImpact = getAverageImpactFactor(applicant);
+        if (DecisionTrace.ENABLED) {
+            DecisionTrace.step("research.avgImpact", avgImpact);
+            DecisionTrace.step("research.thresholds",
+                    policy.getResearchFullImpact() + "/" + policy.getResearchHalfImpact());
+        }
         AwardType awardType;
-        String baseDuration;
 
         // --- 4. Apply Research Grant Rules (Priority 7 Rejection) ---
-        if (avgImpact >= 1.50) {
+        if (avgImpact >= policy.getResearchFullImpact()) {          // 1.50 by default
             awardType = AwardType.FULL;
-            baseDuration = "1 year";
-        } else if (avgImpact >= 1.00) {
+        } else if (avgImpact >= policy.getResearchHalfImpact()) {   // 1.00 by default
             awardType = AwardType.HALF;
-            baseDuration = "6 months";
         } else {
             // Avg impact < 1.00 -> Rejected
             RejectionReason reason = RejectionReason.PUBLICATION_IMPACT_TOO_LOW;
@@ -56,30 +88,38 @@ public class ResearchApplication extends Application {
         }
 
         // --- 5. Determine Final Duration ---
-        // If RSV exists, extend duration by +1 year.
-        if (hasDocument(RSV)) {
-            int durationInMonths = baseDuration.contains("1 year") ? 12 : 6;
-            durationInMonths += 12; // Add 1 year (12 months)
-            baseDuration = formatDuration(durationInMonths);
+        String duration = getDuration(applicant, awardType);
+        if (DecisionTrace.ENABLED) {
+            DecisionTrace.step("research.rsv", applicant.hasDocument(RSV));
+            DecisionTrace.step("research.duration", duration);
         }
 
-        return new EvaluationResult(applicantId, name, SCHOLARSHIP_TYPE, awardType.toString(), baseDuration);
+        return new EvaluationResult(applicantId, name, SCHOLARSHIP_TYPE, awardType.toString(), duration);
+    }
+
+    // Duration of a Research award of the given type:
+    // Full = 1 year, Half = 6 months, and +1 year if RSV exists.
+    public static String getDuration(ApplicantView applicant, AwardType awardType) {
+        if (!applicant.hasDocument(RSV)) {
+            return awardType == AwardType.FULL ? "1 year" : "6 months";
+        }
+        int durationInMonths = awardType == AwardType.FULL ? 12 : 6;
+        durationInMonths += 12; // Add 1 year (12 months)
+        return formatDuration(durationInMonths);
     }
 
     // Helper to calculate average impact factor for all publications.
-    private double calculateAverageImpactFactor() {
-        if (publications.isEmpty()) {
+    // Uses the stored sum, so no stream is built per applicant.
+    public static double getAverageImpactFactor(ApplicantView applicant) {
+        int count = applicant.getPublicationCount();
+        if (count == 0) {
             return 0.0;
         }
-
-        double sum = publications.stream()
-                .mapToDouble(Publication::getImpactFactor)
-                .sum();
-        return sum / publications.size();
+        return applicant.getImpactFactorSum() / count;
     }
 
     // Helper to format duration from months to years/months string.
-    private String formatDuration(int totalMonths) {
+    private static String formatDuration(int totalMonths) {
         int years = totalMonths / 12;
         int months = totalMonths % 12;
 
@@ -0,0 +1,88 @@
+package applications;
+
+import enums.AwardType;
+import model.Applicant;
+import model.ApplicantView;
+import model.EvaluationResult;
+import model.FamilyInfo;
+
+/**
+ * One scholarship category that the system can dispatch to.
+ * The category is chosen by the first two digits of the applicant ID.
+ * Extra categories can be plugged in with java.util.ServiceLoader
+ * (META-INF/services/applications.ScholarshipCategoryProvider).
+ */
+public interface ScholarshipCategoryProvider {
+
+    /**
+     * @return 2-digit applicant ID prefix handled by this category (0 - 99, 0 means "00")
+     */
+    int getPrefix();
+
+    /**
+     * @return label used in the results, for example "Merit"
+     */
+    String getLabel();
+
+    /**
+     * @return true if createApplication needs the FamilyInfo of the applicant
+     */
+    default boolean needsFamilyInfo() {
+        return false;
+    }
+
+    /**
+     * Factory for the Application of this category.
+     *
+     * @param applicant  applicant data
+     * @param familyInfo family info, or null if missing or not needed
+     */
+    Application createApplication(Applicant applicant, FamilyInfo familyInfo);
+
+    /**
+     * Evaluator for this category.
+     * By default the Application is built and evaluated.
+     */
+    default EvaluationResult evaluate(Applicant applicant, FamilyInfo familyInfo) {
+        return createApplication(applicant, familyInfo).evaluate();
+    }
+
+    /**
+     * Evaluator that works on a view. Used by the off-heap applicant store
+     * and the audit replay.
+     * By default an Applicant is built from the view (see Applicant.fromView)
+     * and evaluated; categories that can read the view directly override this.
+     */
+    default EvaluationResult evaluate(ApplicantView applicant, FamilyInfo familyInfo) {
+        return evaluate(Applicant.fromView(applicant), familyInfo);
+    }
+
+    /**
+     * Ranking key used when awards are limited by a budget.
+     * A higher value means a higher priority. By default all applicants are equal.
+     */
+    default double getPriority(ApplicantView applicant, FamilyInfo familyInfo) {
+        return 0.0;
+    }
+
+    /**
+     * Duration of an award of the given type, for an award that is changed
+     * after the evaluation (for example a Full award cut to Half by a budget).
+     * By default the duration does not depend on the type, so the duration
+     * of the normal evaluation is used.
+     */
+    default String getDuration(ApplicantView applicant, FamilyInfo familyInfo, AwardType type) {
+        return evaluate(applicant, familyInfo).getDuration();
+    }
+
+    /**
+     * Category-specific rules with other policy thresholds, used by the
+     * what-if simulation. The general checks must already have passed.
+     * By default the category has no policy thresholds of its own, so the
+     * normal evaluation is used for every policy.
+     */
+    default EvaluationResult applyCategoryRules(ApplicantView applicant, FamilyInfo familyInfo,
+                                                PolicyThresholds policy) {
+        return evaluate(applicant, familyInfo);
+    }
+}
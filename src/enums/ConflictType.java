@@ -0,0 +1,18 @@
+package enums;
+
+public enum ConflictType {
+    CONFLICTING_APPLICANT_LINES("Conflicting 'A' lines"),
+    DOCUMENT_DURATION_CONFLICT("Same document with different durations"),
+    DUPLICATE_PUBLICATION("Duplicate publication"),
+    ORPHAN_ROWS("Rows without an 'A' line");
+
+    private final String message;
+
+    ConflictType(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -7,7 +7,10 @@ public enum RejectionReason {
     MISSING_MANDATORY_DOCUMENT("Missing mandatory document"),
     FINANCIAL_STATUS_UNSTABLE("Financial status unstable"),
     MISSING_PUBLICATION_OR_PROPOSAL("Missing publication or proposal"),
-    PUBLICATION_IMPACT_TOO_LOW("Publication impact too low");
+    PUBLICATION_IMPACT_TOO_LOW("Publication impact too low"),
+    MERIT_GPA_TOO_LOW("GPA below 3.0"), // the text follows the Merit half GPA of the policy
+    QUOTA_REACHED("Category quota reached"),
+    BUDGET_EXHAUSTED("Category budget exhausted");
 
     private final String message;
 
@@ -18,4 +21,16 @@ public enum RejectionReason {
     public String getMessage() {
         return message;
     }
+
+    /**
+     * @return the reason with this message, or null if no reason has it
+     */
+    public static RejectionReason fromMessage(String message) {
+        for (RejectionReason reason : RejectionReason.values()) {
+            if (reason.message.equals(message)) {
+                return reason;
+            }
+        }
+        return null;
+    }
 }
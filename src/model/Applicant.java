@@ -1,6 +1,9 @@
 package model;
 
+import enums.DocumentType;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -9,18 +12,58 @@ import java.util.List;
 public class Applicant {
 
     private final String id;          // Applicant ID
-    private final String name;        // Full name
+    private final StringDictionary dictionary; // Holds the name and publication title strings
+    private final long nameCode;      // Full name, see StringDictionary.encodeName
     private final double gpa;         // Grade point average
     private final double income;      // Income
     private boolean transcriptValid;  // True if transcript is OK
-    private final List<Document> documents;     // List of documents
-    private final List<Publication> publications; // List of publications
+    private Document[] documents;     // Documents (first documentCount slots are used)
+    private int documentCount;
+    private final PublicationList publications; // Titles and impact factors
+
+    // Shared empty storage, the array grows on the first add
+    private static final Document[] NO_DOCUMENTS = new Document[0];
 
     /**
      * Main constructor.
-     * It checks data before saving.
+     * It checks data before saving. The applicant gets a dictionary of its
+     * own; use the other constructor to share one between many applicants.
      */
     public Applicant(String id, String name, double gpa, double income) {
+        this(id, name, gpa, income, new StringDictionary());
+    }
+
+    /**
+     * Constructor that stores the name and the publication titles in the
+     * given dictionary (CSVReader uses one dictionary per load).
+     */
+    public Applicant(String id, String name, double gpa, double income, StringDictionary dictionary) {
+        validate(id, name, gpa, income);
+        if (dictionary == null) {
+            throw new IllegalArgumentException("Dictionary cannot be null");
+        }
+
+        this.id = id.trim();
+        this.dictionary = dictionary;
+        this.nameCode = dictionary.encodeName(name.trim());
+        this.gpa = gpa;
+        this.income = income;
+        this.transcriptValid = false;
+
+        // Start with the shared empty arrays, they grow on the first add
+        this.documents = NO_DOCUMENTS;
+        this.documentCount = 0;
+        this.publications = new PublicationList(dictionary);
+    }
+
+    /**
+     * Checks the values that an Applicant is built from.
+     * Used by the constructor and by code that needs the same rules
+     * without creating the object.
+     *
+     * @throws IllegalArgumentException if any value is invalid
+     */
+    public static void validate(String id, String name, double gpa, double income) {
         // Basic checks for null or invalid data
         if (id == null || id.trim().isEmpty()) {
             throw new IllegalArgumentException("Applicant ID cannot be empty");
@@ -34,16 +77,6 @@ public class Applicant {
         if (income < 0.0) {
             throw new IllegalArgumentException("Income cannot be negative");
         }
-
-        this.id = id.trim();
-        this.name = name.trim();
-        this.gpa = gpa;
-        this.income = income;
-        this.transcriptValid = false;
-
-        // Create empty lists
-        this.documents = new ArrayList<>();
-        this.publications = new ArrayList<>();
     }
 
     /**
@@ -57,25 +90,45 @@ public class Applicant {
         }
 
         this.id = other.id;
-        this.name = other.name;
+        this.dictionary = other.dictionary;
+        this.nameCode = other.nameCode;
         this.gpa = other.gpa;
         this.income = other.income;
         this.transcriptValid = other.transcriptValid;
 
-        // Deep copy for lists
-        this.documents = new ArrayList<>();
-        for (Document d : other.documents) {
-            if (d != null) {
-                this.documents.add(new Document(d)); // Needs Document copy constructor
-            }
+        // Deep copy, exact size
+        this.documents = other.documentCount == 0 ? NO_DOCUMENTS : new Document[other.documentCount];
+        for (int i = 0; i < other.documentCount; i++) {
+            this.documents[i] = new Document(other.documents[i]); // Needs Document copy constructor
         }
+        this.documentCount = other.documentCount;
 
-        this.publications = new ArrayList<>();
-        for (Publication p : other.publications) {
-            if (p != null) {
-                this.publications.add(new Publication(p)); // Needs Publication copy constructor
+        this.publications = new PublicationList(other.publications);
+    }
+
+    /**
+     * Builds an Applicant with the same inputs as a view, for rules that
+     * need an Applicant (for example a plug-in category).
+     * A view only tells which documents exist, so every document gets a
+     * duration of 0, and the publications have empty titles.
+     */
+    public static Applicant fromView(ApplicantView view) {
+        if (view == null) {
+            throw new IllegalArgumentException("Cannot create Applicant from null view");
+        }
+        Applicant applicant = new Applicant(view.getApplicantId(), view.getName(), view.getGpa(), view.getIncome());
+        applicant.setTranscriptValid(view.isTranscriptValid());
+        for (DocumentType type : DocumentType.values()) {
+            if (view.hasDocument(type)) {
+                applicant.addDocument(new Document(type, 0));
             }
         }
+        int count = view.getPublicationCount();
+        for (int i = 0; i < count; i++) {
+            applicant.addPublication("", view.getImpactFactor(i));
+        }
+        applicant.trimToSize();
+        return applicant;
     }
 
     /**
@@ -83,7 +136,10 @@ public class Applicant {
      */
     public void addDocument(Document doc) {
         if (doc != null) {
-            documents.add(doc);
+            if (documentCount == documents.length) {
+                documents = Arrays.copyOf(documents, Math.max(4, documentCount * 2));
+            }
+            documents[documentCount++] = doc;
         }
     }
 
@@ -91,9 +147,25 @@ public class Applicant {
      * Add one publication to the list.
      */
     public void addPublication(Publication pub) {
-        if (pub != null) {
-            publications.add(pub);
+        publications.add(pub);
+    }
+
+    /**
+     * Add one publication without creating a Publication object.
+     */
+    public void addPublication(String title, double impactFactor) {
+        publications.add(title, impactFactor);
+    }
+
+    /**
+     * Shrinks the internal arrays to their exact size.
+     * Called by the reader when the applicant is complete.
+     */
+    public void trimToSize() {
+        if (documentCount < documents.length) {
+            documents = documentCount == 0 ? NO_DOCUMENTS : Arrays.copyOf(documents, documentCount);
         }
+        publications.trimToSize();
     }
 
     /**
@@ -108,8 +180,25 @@ public class Applicant {
         return id;
     }
 
+    /**
+     * Decodes the name, a new String on every call.
+     */
     public String getName() {
-        return name;
+        return dictionary.decodeName(nameCode);
+    }
+
+    /**
+     * @return the encoded name, see StringDictionary.encodeName
+     */
+    public long getNameCode() {
+        return nameCode;
+    }
+
+    /**
+     * @return the dictionary that the name code and the publication titles belong to
+     */
+    public StringDictionary getDictionary() {
+        return dictionary;
     }
 
     public double getGpa() {
@@ -128,21 +217,46 @@ public class Applicant {
      * Get a safe copy of documents list.
      */
     public List<Document> getDocuments() {
-        return new ArrayList<>(documents);
+        return new ArrayList<>(Arrays.asList(documents).subList(0, documentCount));
+    }
+
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    /**
+     * Get one document without copying the list.
+     */
+    public Document getDocumentAt(int index) {
+        if (index < 0 || index >= documentCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + documentCount);
+        }
+        return documents[index];
     }
 
     /**
      * Get a safe copy of publications list.
      */
     public List<Publication> getPublications() {
-        return new ArrayList<>(publications);
+        return publications.toList();
+    }
+
+    /**
+     * Get a safe copy of the compact publication list.
+     */
+    public PublicationList getPublicationList() {
+        return new PublicationList(publications);
+    }
+
+    public int getPublicationCount() {
+        return publications.size();
     }
 
     @Override
     public String toString() {
-        return "Applicant{id='" + id + "', name='" + name + "', gpa=" + gpa +
+        return "Applicant{id='" + id + "', name='" + getName() + "', gpa=" + gpa +
                 ", income=" + income + ", transcriptValid=" + transcriptValid +
-                ", documents=" + documents.size() +
+                ", documents=" + documentCount +
                 ", publications=" + publications.size() + "}";
     }
 }
@@ -0,0 +1,39 @@
+package model;
+
+import enums.DocumentType;
+
+/**
+ * Read-only view of the applicant data that the evaluation rules need.
+ * It is implemented by Application and by the off-heap store cursor,
+ * so the same rules work on both.
+ */
+public interface ApplicantView {
+
+    String getApplicantId();
+
+    String getName();
+
+    double getGpa();
+
+    double getIncome();
+
+    boolean isTranscriptValid();
+
+    boolean hasDocument(DocumentType type);
+
+    int getPublicationCount();
+
+    /**
+     * @return impact factor of one publication (0 to getPublicationCount() - 1)
+     */
+    double getImpactFactor(int index);
+
+    /**
+     * The sum is kept while the publications are added, so this is O(1)
+     * and creates no stream on the evaluation path.
+     *
+     * @return sum of the impact factors of all publications, in list order
+     *         and with the same compensated summation as DoubleStream.sum()
+     */
+    double getImpactFactorSum();
+}
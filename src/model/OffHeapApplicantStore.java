@@ -0,0 +1,397 @@
+package model;
+
+import enums.DocumentType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Keeps applicant data outside the Java heap, in direct ByteBuffers.
+ * This keeps the garbage collector away from very large data sets.
+ *
+ * Layout:
+ * - records:      one fixed-width record per applicant
+ * - documents:    (type, duration) pairs, one block per applicant
+ * - publications: (impact factor, title) entries, one block per applicant
+ * - strings:      UTF-8 bytes of IDs, names and publication titles
+ *
+ * Each area is a list of segments of at most 64 MB, addressed with long
+ * offsets, so the store is not limited to 2 GB (the size of one direct
+ * buffer). An entry never crosses a segment boundary. Only the first
+ * segment of an area grows by copying; later segments are added as needed.
+ *
+ * A Cursor reads one applicant at a time without creating heap objects
+ * (only the strings are decoded, and only when they are asked for).
+ */
+public class OffHeapApplicantStore {
+
+    // Applicant record layout (byte offsets)
+    private static final int ID_OFFSET = 0;            // long: string offset
+    private static final int NAME_OFFSET = 8;          // long
+    private static final int ID_LENGTH = 16;           // int: string length
+    private static final int NAME_LENGTH = 20;         // int
+    private static final int GPA = 24;                 // double
+    private static final int INCOME = 32;              // double
+    private static final int DOC_START = 40;           // long: first document index
+    private static final int PUB_START = 48;           // long: first publication index
+    private static final int DOC_COUNT = 56;           // int
+    private static final int PUB_COUNT = 60;           // int
+    private static final int IMPACT_SUM = 64;          // double
+    private static final int FAMILY_INCOME = 72;       // double
+    private static final int DEPENDENTS = 80;          // int
+    private static final int FLAGS = 84;               // int
+    private static final int RECORD_SIZE = 88;
+
+    private static final int DOCUMENT_SIZE = 8;        // int type ordinal, int duration
+    private static final int PUBLICATION_SIZE = 20;    // double impact, long title offset, int title length
+
+    private static final int FLAG_TRANSCRIPT = 1;
+    private static final int FLAG_FAMILY_INFO = 2;
+
+    private static final int SEGMENT_BYTES = 64 * 1024 * 1024;
+
+    private static final DocumentType[] DOCUMENT_TYPES = DocumentType.values();
+
+    private final Area records;
+    private final Area documents;
+    private final Area publications;
+    private final Area strings;
+
+    private int size;              // number of applicants
+    private long documentCount;    // total number of documents
+    private long publicationCount; // total number of publications
+    private long stringsEnd;       // bytes used in the string area
+
+    /**
+     * Creates an empty store with room for the given number of applicants
+     * (a hint, at most the first segment of each area is allocated).
+     * The areas grow when needed.
+     */
+    public OffHeapApplicantStore(int expectedApplicants) {
+        long n = Math.max(16, expectedApplicants);
+        this.records = new Area(RECORD_SIZE, n * RECORD_SIZE);
+        this.documents = new Area(DOCUMENT_SIZE, n * 2 * DOCUMENT_SIZE);
+        this.publications = new Area(PUBLICATION_SIZE, n * PUBLICATION_SIZE);
+        this.strings = new Area(1, n * 32);
+    }
+
+    /**
+     * Copies one applicant (and its family info) into the store.
+     *
+     * @param familyInfo family info, or null if there is none
+     * @return index of the stored applicant
+     */
+    public int add(Applicant applicant, FamilyInfo familyInfo) {
+        if (applicant == null) {
+            throw new IllegalArgumentException("Applicant cannot be null");
+        }
+        if (size == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Off-heap store is full (" + size + " applicants)");
+        }
+
+        int docCount = applicant.getDocumentCount();
+        PublicationList pubs = applicant.getPublicationList();
+
+        records.ensureCapacity((long) (size + 1) * RECORD_SIZE);
+        documents.ensureCapacity((documentCount + docCount) * DOCUMENT_SIZE);
+        publications.ensureCapacity((publicationCount + pubs.size()) * PUBLICATION_SIZE);
+
+        long recordPos = (long) size * RECORD_SIZE;
+        ByteBuffer record = records.segment(recordPos);
+        int base = records.offset(recordPos);
+
+        String id = applicant.getId();
+        String name = applicant.getName();
+        record.putInt(base + ID_LENGTH, putString(id, record, base + ID_OFFSET));
+        record.putInt(base + NAME_LENGTH, putString(name, record, base + NAME_OFFSET));
+        record.putDouble(base + GPA, applicant.getGpa());
+        record.putDouble(base + INCOME, applicant.getIncome());
+
+        record.putLong(base + DOC_START, documentCount);
+        record.putInt(base + DOC_COUNT, docCount);
+        for (int i = 0; i < docCount; i++) {
+            Document d = applicant.getDocumentAt(i);
+            long pos = documentCount * DOCUMENT_SIZE;
+            ByteBuffer segment = documents.segment(pos);
+            int offset = documents.offset(pos);
+            segment.putInt(offset, d.getType().ordinal());
+            segment.putInt(offset + 4, d.getDurationInMonths());
+            documentCount++;
+        }
+
+        record.putLong(base + PUB_START, publicationCount);
+        record.putInt(base + PUB_COUNT, pubs.size());
+        for (int i = 0; i < pubs.size(); i++) {
+            long pos = publicationCount * PUBLICATION_SIZE;
+            ByteBuffer segment = publications.segment(pos);
+            int offset = publications.offset(pos);
+            segment.putDouble(offset, pubs.getImpactFactor(i));
+            segment.putInt(offset + 16, putString(pubs.getTitle(i), segment, offset + 8));
+            publicationCount++;
+        }
+        record.putDouble(base + IMPACT_SUM, pubs.getImpactFactorSum());
+
+        int flags = applicant.isTranscriptValid() ? FLAG_TRANSCRIPT : 0;
+        if (familyInfo != null) {
+            flags |= FLAG_FAMILY_INFO;
+            record.putDouble(base + FAMILY_INCOME, familyInfo.getFamilyIncome());
+            record.putInt(base + DEPENDENTS, familyInfo.getDependents());
+        } else {
+            record.putDouble(base + FAMILY_INCOME, 0.0);
+            record.putInt(base + DEPENDENTS, 0);
+        }
+        record.putInt(base + FLAGS, flags);
+
+        return size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all applicants. The segments are kept for reuse.
+     */
+    public void clear() {
+        size = 0;
+        documentCount = 0;
+        publicationCount = 0;
+        stringsEnd = 0;
+    }
+
+    /**
+     * @return new cursor, positioned on the first applicant
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Writes a string to the string area and its offset to the given position.
+     * A string that does not fit in the rest of a segment starts in the next one.
+     *
+     * @return length of the string in bytes
+     */
+    private int putString(String s, ByteBuffer target, int targetOffset) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        long start = stringsEnd;
+        if (strings.offset(start) + (long) bytes.length > strings.segmentSize) {
+            if (bytes.length > strings.segmentSize) {
+                throw new IllegalArgumentException("Text too long for the off-heap store: " + s.length() + " characters");
+            }
+            start = (start / strings.segmentSize + 1) * strings.segmentSize;
+        }
+        strings.ensureCapacity(start + bytes.length);
+        ByteBuffer segment = strings.segment(start).duplicate();
+        segment.position(strings.offset(start));
+        segment.put(bytes);
+        stringsEnd = start + bytes.length;
+
+        target.putLong(targetOffset, start);
+        return bytes.length;
+    }
+
+    private String getString(long offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = strings.segment(offset).duplicate();
+        view.position(strings.offset(offset));
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * One area of the store: a list of direct buffers of segmentSize bytes,
+     * addressed with a long byte offset. The segment size is a multiple of
+     * the entry size, so a fixed-width entry never crosses a segment.
+     */
+    private static final class Area {
+        final int segmentSize;
+        private ByteBuffer[] segments;
+        private int segmentCount;
+
+        Area(int entrySize, long initialBytes) {
+            this.segmentSize = SEGMENT_BYTES / entrySize * entrySize;
+            int first = (int) Math.min(segmentSize, Math.max(entrySize, initialBytes));
+            this.segments = new ByteBuffer[] { allocate(first) };
+            this.segmentCount = 1;
+        }
+
+        ByteBuffer segment(long position) {
+            return segments[(int) (position / segmentSize)];
+        }
+
+        int offset(long position) {
+            return (int) (position % segmentSize);
+        }
+
+        /**
+         * Makes sure that the bytes before the given end offset can be used.
+         * The first segment is doubled and copied until it has the full
+         * segment size; after that new segments are added.
+         */
+        void ensureCapacity(long required) {
+            while (required > capacity()) {
+                ByteBuffer first = segments[0];
+                if (segmentCount == 1 && first.capacity() < segmentSize) {
+                    ByteBuffer bigger = allocate((int) Math.min(segmentSize, (long) first.capacity() * 2));
+                    ByteBuffer old = first.duplicate();
+                    old.clear();
+                    bigger.put(old);
+                    bigger.clear();
+                    segments[0] = bigger;
+                } else {
+                    if (segmentCount == segments.length) {
+                        segments = Arrays.copyOf(segments, segmentCount * 2);
+                    }
+                    segments[segmentCount++] = allocate(segmentSize);
+                }
+            }
+        }
+
+        private long capacity() {
+            return (long) (segmentCount - 1) * segmentSize + segments[segmentCount - 1].capacity();
+        }
+    }
+
+    /**
+     * Flyweight reader over one applicant of the store.
+     * Move it with moveTo; the same object is reused for every applicant.
+     */
+    public final class Cursor implements ApplicantView {
+
+        private ByteBuffer record; // segment of the current record
+        private int base;          // offset of the current record in its segment
+
+        private Cursor() {
+            this.record = records.segment(0);
+            this.base = 0;
+        }
+
+        /**
+         * Moves the cursor to the given applicant.
+         *
+         * @return this cursor
+         */
+        public Cursor moveTo(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+            }
+            long pos = (long) index * RECORD_SIZE;
+            this.record = records.segment(pos);
+            this.base = records.offset(pos);
+            return this;
+        }
+
+        @Override
+        public String getApplicantId() {
+            return getString(record.getLong(base + ID_OFFSET), record.getInt(base + ID_LENGTH));
+        }
+
+        @Override
+        public String getName() {
+            return getString(record.getLong(base + NAME_OFFSET), record.getInt(base + NAME_LENGTH));
+        }
+
+        @Override
+        public double getGpa() {
+            return record.getDouble(base + GPA);
+        }
+
+        @Override
+        public double getIncome() {
+            return record.getDouble(base + INCOME);
+        }
+
+        @Override
+        public boolean isTranscriptValid() {
+            return (record.getInt(base + FLAGS) & FLAG_TRANSCRIPT) != 0;
+        }
+
+        @Override
+        public boolean hasDocument(DocumentType type) {
+            return findDocument(type) >= 0;
+        }
+
+        /**
+         * @return duration of the first document of this type, or -1 if missing
+         */
+        public int getDocumentDuration(DocumentType type) {
+            long index = findDocument(type);
+            if (index < 0) {
+                return -1;
+            }
+            long pos = index * DOCUMENT_SIZE;
+            return documents.segment(pos).getInt(documents.offset(pos) + 4);
+        }
+
+        public int getDocumentCount() {
+            return record.getInt(base + DOC_COUNT);
+        }
+
+        public DocumentType getDocumentType(int i) {
+            long pos = (record.getLong(base + DOC_START) + i) * DOCUMENT_SIZE;
+            return DOCUMENT_TYPES[documents.segment(pos).getInt(documents.offset(pos))];
+        }
+
+        @Override
+        public int getPublicationCount() {
+            return record.getInt(base + PUB_COUNT);
+        }
+
+        @Override
+        public double getImpactFactorSum() {
+            return record.getDouble(base + IMPACT_SUM);
+        }
+
+        @Override
+        public double getImpactFactor(int i) {
+            long pos = (record.getLong(base + PUB_START) + i) * PUBLICATION_SIZE;
+            return publications.segment(pos).getDouble(publications.offset(pos));
+        }
+
+        public String getPublicationTitle(int i) {
+            long pos = (record.getLong(base + PUB_START) + i) * PUBLICATION_SIZE;
+            ByteBuffer segment = publications.segment(pos);
+            int offset = publications.offset(pos);
+            return getString(segment.getLong(offset + 8), segment.getInt(offset + 16));
+        }
+
+        public boolean hasFamilyInfo() {
+            return (record.getInt(base + FLAGS) & FLAG_FAMILY_INFO) != 0;
+        }
+
+        /**
+         * @return new FamilyInfo object, or null if the applicant has none
+         */
+        public FamilyInfo getFamilyInfo() {
+            if (!hasFamilyInfo()) {
+                return null;
+            }
+            return new FamilyInfo(record.getDouble(base + FAMILY_INCOME), record.getInt(base + DEPENDENTS));
+        }
+
+        /**
+         * @return index of the first document of this type, or -1 if missing
+         */
+        private long findDocument(DocumentType type) {
+            if (type == null) {
+                return -1;
+            }
+            long start = record.getLong(base + DOC_START);
+            long end = start + record.getInt(base + DOC_COUNT);
+            for (long i = start; i < end; i++) {
+                long pos = i * DOCUMENT_SIZE;
+                if (documents.segment(pos).getInt(documents.offset(pos)) == type.ordinal()) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
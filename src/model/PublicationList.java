@@ -0,0 +1,175 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact list of publications.
+ * Titles and impact factors are kept in two parallel arrays.
+ * The sum of the impact factors is kept up to date in add, with the same
+ * compensated (Kahan) steps as DoubleStream.sum(), so the average costs
+ * O(1) and gives exactly the value of the stream version.
+ * Titles are kept as codes of a StringDictionary, so a title that
+ * many applicants of one load share is stored once.
+ * Publication objects are only created when someone asks for them.
+ */
+public final class PublicationList {
+
+    private static final int[] NO_TITLES = new int[0];
+    private static final double[] NO_IMPACTS = new double[0];
+
+    private final StringDictionary dictionary; // decodes the title codes
+    private int[] titles;             // title codes
+    private double[] impactFactors;
+    private int size;
+
+    // Running sum in the three parts DoubleStream.sum() keeps
+    private double sum;               // high-order bits of the compensated sum
+    private double compensation;      // negated low-order bits
+    private double simpleSum;         // plain sum, used when the values are infinite
+
+    /**
+     * Creates an empty list with a dictionary of its own.
+     */
+    public PublicationList() {
+        this(new StringDictionary());
+    }
+
+    /**
+     * Creates an empty list whose titles go into the given dictionary.
+     * No arrays are allocated until the first add.
+     */
+    public PublicationList(StringDictionary dictionary) {
+        if (dictionary == null) {
+            throw new NullPointerException("dictionary cannot be null");
+        }
+        this.dictionary = dictionary;
+        this.titles = NO_TITLES;
+        this.impactFactors = NO_IMPACTS;
+        this.size = 0;
+    }
+
+    /**
+     * Copy constructor. The copy has exact-size arrays and shares the dictionary.
+     */
+    public PublicationList(PublicationList other) {
+        if (other == null) {
+            throw new NullPointerException("other cannot be null");
+        }
+        this.dictionary = other.dictionary;
+        this.size = other.size;
+        this.titles = size == 0 ? NO_TITLES : Arrays.copyOf(other.titles, size);
+        this.impactFactors = size == 0 ? NO_IMPACTS : Arrays.copyOf(other.impactFactors, size);
+        this.sum = other.sum;
+        this.compensation = other.compensation;
+        this.simpleSum = other.simpleSum;
+    }
+
+    /**
+     * Add one publication without creating a Publication object.
+     */
+    public void add(String title, double impactFactor) {
+        if (title == null) {
+            throw new NullPointerException("title cannot be null");
+        }
+        if (size == titles.length) {
+            int newLength = Math.max(2, size * 2);
+            titles = Arrays.copyOf(titles, newLength);
+            impactFactors = Arrays.copyOf(impactFactors, newLength);
+        }
+        titles[size] = dictionary.encode(title);
+        impactFactors[size] = impactFactor;
+        size++;
+
+        // Same steps as Collectors.sumWithCompensation
+        double tmp = impactFactor - compensation;
+        double velvel = sum + tmp;
+        compensation = (velvel - sum) - tmp;
+        sum = velvel;
+        simpleSum += impactFactor;
+    }
+
+    public void add(Publication publication) {
+        if (publication != null) {
+            add(publication.getTitle(), publication.getImpactFactor());
+        }
+    }
+
+    /**
+     * Shrinks the arrays to their exact size.
+     */
+    public void trimToSize() {
+        if (size < titles.length) {
+            titles = size == 0 ? NO_TITLES : Arrays.copyOf(titles, size);
+            impactFactors = size == 0 ? NO_IMPACTS : Arrays.copyOf(impactFactors, size);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public String getTitle(int index) {
+        checkIndex(index);
+        return dictionary.decode(titles[index]);
+    }
+
+    public double getImpactFactor(int index) {
+        checkIndex(index);
+        return impactFactors[index];
+    }
+
+    /**
+     * @return sum of the impact factors, exactly as DoubleStream.sum() gives it in list order
+     */
+    public double getImpactFactorSum() {
+        // Same as Collectors.computeFinalSum
+        double total = sum - compensation;
+        if (Double.isNaN(total) && Double.isInfinite(simpleSum)) {
+            return simpleSum;
+        }
+        return total;
+    }
+
+    /**
+     * @return average impact factor, or 0.0 if the list is empty
+     */
+    public double getAverageImpactFactor() {
+        return size == 0 ? 0.0 : getImpactFactorSum() / size;
+    }
+
+    /**
+     * Creates a Publication object for one entry.
+     */
+    public Publication get(int index) {
+        checkIndex(index);
+        return new Publication(getTitle(index), impactFactors[index]);
+    }
+
+    /**
+     * Creates a new list of Publication objects.
+     */
+    public List<Publication> toList() {
+        List<Publication> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(new Publication(dictionary.decode(titles[i]), impactFactors[i]));
+        }
+        return list;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PublicationList{size=" + size + ", impactFactorSum=" + getImpactFactorSum() + "}";
+    }
+}
@@ -0,0 +1,144 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Keeps every distinct string once and gives it a small int code.
+ *
+ * First names, last names and publication titles repeat a lot in the
+ * input, so records keep codes instead of their own String objects and
+ * the text is decoded only when it is needed (mostly for the output).
+ *
+ * A dictionary belongs to one load: CSVReader starts a new one for every
+ * file it reads and shares it between the applicants of that file, so the
+ * strings of an old load go away with its applicants. An object built on
+ * its own (for example with the Applicant constructor without a
+ * dictionary) gets a small dictionary of its own.
+ *
+ * Codes are handed out in order 0, 1, 2, ... and never change. There is
+ * no lock: only one thread at a time may encode (the thread that loads
+ * the data), and any thread may decode at any time, because a code can
+ * only be seen by a thread after the string behind it was stored. The
+ * storage starts small, so a dictionary for a single object is cheap.
+ */
+public final class StringDictionary {
+
+    /** Name code part that means "no second part" (one-word names). */
+    private static final int NONE = -1;
+
+    // Strings are kept in fixed-size chunks, so growing never copies them
+    // (only the first chunk starts small and is copied while it grows)
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private volatile String[][] chunks;
+    private int size;
+
+    // Open addressing hash table of (code + 1), 0 is an empty slot
+    private int[] slots;
+
+    public StringDictionary() {
+        this.chunks = new String[][] { new String[4] };
+        this.size = 0;
+        this.slots = new int[8];
+    }
+
+    /**
+     * @return the code of the text, a new one if the text was not seen before
+     */
+    public int encode(String text) {
+        if (text == null) {
+            throw new IllegalArgumentException("Text cannot be null");
+        }
+        int mask = slots.length - 1;
+        int i = mix(text.hashCode()) & mask;
+        while (slots[i] != 0) {
+            int code = slots[i] - 1;
+            if (decode(code).equals(text)) {
+                return code;
+            }
+            i = (i + 1) & mask;
+        }
+
+        int code = size;
+        String[][] current = chunks;
+        int chunk = code >>> CHUNK_BITS;
+        int index = code & (CHUNK_SIZE - 1);
+        if (chunk == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        if (current[chunk] == null) {
+            current[chunk] = new String[CHUNK_SIZE];
+        } else if (index == current[chunk].length) {
+            current = current.clone(); // readers may still hold the old first chunk
+            current[chunk] = Arrays.copyOf(current[chunk], Math.min(CHUNK_SIZE, index * 2));
+        }
+        current[chunk][index] = text;
+        chunks = current;
+        size++;
+
+        slots[i] = code + 1;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return code;
+    }
+
+    /**
+     * @return the text of a code returned by encode
+     */
+    public String decode(int code) {
+        String[][] current = chunks;
+        return current[code >>> CHUNK_BITS][code & (CHUNK_SIZE - 1)];
+    }
+
+    /**
+     * @return number of distinct strings (only exact on the encoding thread)
+     */
+    public int size() {
+        return size;
+    }
+
+    private void rehash() {
+        int[] bigger = new int[slots.length * 2];
+        int mask = bigger.length - 1;
+        for (int code = 0; code < size; code++) {
+            int i = mix(decode(code).hashCode()) & mask;
+            while (bigger[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            bigger[i] = code + 1;
+        }
+        slots = bigger;
+    }
+
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Encodes a trimmed name as two word codes packed in a long:
+     * the first word, and the rest of the name after the first space
+     * ("Owen Parker" -> "Owen", "Parker"). A one-word name has no rest.
+     * The text between the parts is kept exactly, so decodeName gives
+     * back the same string.
+     */
+    public long encodeName(String name) {
+        int space = name.indexOf(' ');
+        if (space < 0) {
+            return ((long) encode(name) << 32) | (NONE & 0xFFFFFFFFL);
+        }
+        int first = encode(name.substring(0, space));
+        int rest = encode(name.substring(space + 1));
+        return ((long) first << 32) | (rest & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return the name of a code returned by encodeName
+     */
+    public String decodeName(long code) {
+        String first = decode((int) (code >>> 32));
+        int rest = (int) code;
+        return rest == NONE ? first : first + " " + decode(rest);
+    }
+}
@@ -0,0 +1,56 @@
+package monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Creating the applications of one category within one batch
+ * (at most EvaluationBatchEvent.BATCH_SIZE applicants).
+ * The batch is grouped by category first, so the event is started before
+ * the first application of its category is created and finished right
+ * after the last one. It does not include the evaluation that follows
+ * in createAndEvaluateApplications.
+ */
+@Name("scholarship.ApplicationCreation")
+@Label("Application Creation")
+@Category({"Scholarship", "Evaluation"})
+@Description("Creation of the applications of one category in a batch")
+@StackTrace(false)
+@Threshold("20 ms")
+public class ApplicationCreationEvent extends jdk.jfr.Event {
+
+    @Label("Category")
+    @Description("Label of the scholarship category, as registered in CategoryRegistry")
+    public String category;
+
+    @Label("Applications")
+    public int applications;
+
+    /**
+     * @return a new event with its timer started
+     */
+    public static ApplicationCreationEvent start() {
+        ApplicationCreationEvent event = new ApplicationCreationEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Stops the timer and commits the event if it took long enough.
+     *
+     * @param category     label of the category
+     * @param applications applications created
+     */
+    public void finish(String category, int applications) {
+        end();
+        if (applications > 0 && shouldCommit()) {
+            this.category = category;
+            this.applications = applications;
+            commit();
+        }
+    }
+}
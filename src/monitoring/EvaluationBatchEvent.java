@@ -0,0 +1,68 @@
+package monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Evaluating the applications of one category within one batch.
+ *
+ * The loops take at most BATCH_SIZE applications, group them by category
+ * and evaluate each category between start and finish. Only then are the
+ * results logged and stored, so the event times the evaluation calls of
+ * one category and nothing else:
+ *
+ *   EvaluationBatchEvent event = EvaluationBatchEvent.start();
+ *   for (...) { results[i] = app.evaluate(); count accepted / rejected }
+ *   event.finish(label, accepted, rejected);
+ */
+@Name("scholarship.EvaluationBatch")
+@Label("Evaluation Batch")
+@Category({"Scholarship", "Evaluation"})
+@Description("Evaluation of the applications of one category in a batch, with the accept and reject counts")
+@StackTrace(false)
+@Threshold("10 ms")
+public class EvaluationBatchEvent extends jdk.jfr.Event {
+
+    /** Most applications per event. */
+    public static final int BATCH_SIZE = 16 * 1024;
+
+    @Label("Category")
+    @Description("Label of the scholarship category, as registered in CategoryRegistry")
+    public String category;
+
+    @Label("Accepted")
+    public int accepted;
+
+    @Label("Rejected")
+    public int rejected;
+
+    /**
+     * @return a new event with its timer started
+     */
+    public static EvaluationBatchEvent start() {
+        EvaluationBatchEvent event = new EvaluationBatchEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Stops the timer and commits the event if it took long enough.
+     *
+     * @param category label of the category
+     * @param accepted accepted applications
+     * @param rejected rejected applications
+     */
+    public void finish(String category, int accepted, int rejected) {
+        end();
+        if (accepted + rejected > 0 && shouldCommit()) {
+            this.category = category;
+            this.accepted = accepted;
+            this.rejected = rejected;
+            commit();
+        }
+    }
+}
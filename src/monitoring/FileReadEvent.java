@@ -0,0 +1,56 @@
+package monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Reading and splitting the rows of one file, shard or stream, or of one
+ * chunk between two checkpoint segments (see IngestCheckpoint).
+ */
+@Name("scholarship.FileRead")
+@Label("File Read")
+@Category({"Scholarship", "Ingest"})
+@Description("Reading and splitting the CSV rows of one file, shard, stream or checkpoint chunk")
+@StackTrace(false)
+@Threshold("20 ms")
+public class FileReadEvent extends jdk.jfr.Event {
+
+    @Label("Source")
+    public String source;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Rows")
+    public int rows;
+
+    /**
+     * @return a new event with its timer started
+     */
+    public static FileReadEvent start(Object source) {
+        FileReadEvent event = new FileReadEvent();
+        event.begin();
+        event.source = String.valueOf(source);
+        return event;
+    }
+
+    /**
+     * Commits the event if it took long enough.
+     *
+     * @param bytes bytes read, or -1 if not known
+     */
+    public void finish(long bytes, int rows) {
+        end();
+        if (shouldCommit()) {
+            this.bytes = bytes;
+            this.rows = rows;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Sorting the rows by applicant ID and building the applicants.
+ */
+@Name("scholarship.Grouping")
+@Label("Applicant Grouping")
+@Category({"Scholarship", "Ingest"})
+@Description("Sorting the rows by applicant ID and building one applicant per group")
+@StackTrace(false)
+@Threshold("20 ms")
+public class GroupingEvent extends jdk.jfr.Event {
+
+    @Label("Rows")
+    public int rows;
+
+    @Label("Applicants")
+    public int applicants;
+}
@@ -0,0 +1,25 @@
+package monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Writing the buffered result bytes to the output channel.
+ */
+@Name("scholarship.OutputFlush")
+@Label("Output Flush")
+@Category({"Scholarship", "Output"})
+@Description("Writing the buffered result bytes to the output channel")
+@StackTrace(false)
+@Threshold("5 ms")
+public class OutputFlushEvent extends jdk.jfr.Event {
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
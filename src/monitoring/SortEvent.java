@@ -0,0 +1,23 @@
+package monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Sorting the results by applicant ID.
+ */
+@Name("scholarship.ResultSort")
+@Label("Result Sort")
+@Category({"Scholarship", "Output"})
+@Description("Sorting the results by applicant ID before the output")
+@StackTrace(false)
+@Threshold("10 ms")
+public class SortEvent extends jdk.jfr.Event {
+
+    @Label("Results")
+    public int results;
+}
@@ -0,0 +1,50 @@
+package output;
+
+import model.EvaluationResult;
+
+import java.io.IOException;
+
+/**
+ * Compact binary records, read back by BinaryResultReader.
+ *
+ * Layout (big-endian):
+ *   header: int MAGIC, int VERSION
+ *   record: byte accepted, str applicant ID, str name, str scholarship type,
+ *           then str type, str duration (accepted) or str rejection reason (rejected)
+ * A str is an unsigned short byte length followed by UTF-8 bytes.
+ */
+public class BinaryResultEncoder implements ResultEncoder {
+
+    static final int MAGIC = 0x53435253; // "SCRS"
+    static final int VERSION = 1;
+    static final int MAX_STRING_BYTES = 0xFFFF;
+
+    @Override
+    public void writeHeader(ResultOutput out) throws IOException {
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+    }
+
+    @Override
+    public void write(EvaluationResult result, ResultOutput out) throws IOException {
+        out.put((byte) (result.isAccepted() ? 1 : 0));
+        putString(result.getApplicantId(), out);
+        putString(result.getName(), out);
+        putString(result.getScholarshipType(), out);
+        if (result.isAccepted()) {
+            putString(result.getType(), out);
+            putString(result.getDuration(), out);
+        } else {
+            putString(result.getRejectionReason(), out);
+        }
+    }
+
+    private static void putString(String s, ResultOutput out) throws IOException {
+        int length = ResultOutput.utf8Length(s);
+        if (length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("Text too long for a binary result: " + s.length() + " characters");
+        }
+        out.putShort(length);
+        out.putText(s);
+    }
+}
@@ -0,0 +1,76 @@
+package output;
+
+import model.EvaluationResult;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the records written by BinaryResultEncoder.
+ */
+public class BinaryResultReader implements Closeable {
+
+    private final DataInputStream in;
+    private byte[] buffer;
+
+    /**
+     * Reads and checks the header.
+     *
+     * @throws IOException if the stream is not a binary result stream
+     */
+    public BinaryResultReader(InputStream stream) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024));
+        this.buffer = new byte[256];
+        if (in.readInt() != BinaryResultEncoder.MAGIC) {
+            throw new IOException("Not a binary result stream");
+        }
+        int version = in.readInt();
+        if (version != BinaryResultEncoder.VERSION) {
+            throw new IOException("Unsupported binary result version " + version);
+        }
+    }
+
+    /**
+     * @return next result, or null at the end of the stream
+     * @throws IOException if the stream ends inside a record
+     */
+    public EvaluationResult next() throws IOException {
+        int accepted = in.read();
+        if (accepted < 0) {
+            return null;
+        }
+        String id = getString();
+        String name = getString();
+        String scholarship = getString();
+        if (accepted != 0) {
+            String type = getString();
+            String duration = getString();
+            return new EvaluationResult(id, name, scholarship, type, duration);
+        }
+        return new EvaluationResult(id, name, scholarship, getString());
+    }
+
+    private String getString() throws IOException {
+        int length;
+        try {
+            length = in.readUnsignedShort();
+            if (buffer.length < length) {
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+            }
+            in.readFully(buffer, 0, length);
+        } catch (EOFException e) {
+            throw new IOException("Binary result stream ends inside a record", e);
+        }
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,72 @@
+package output;
+
+import model.EvaluationResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One CSV line per result (RFC 4180 quoting), after a header line:
+ * applicantId,name,scholarship,status,type,duration,reason
+ * Empty fields are left empty.
+ */
+public class CsvResultEncoder implements ResultEncoder {
+
+    private static final byte[] HEADER =
+            "applicantId,name,scholarship,status,type,duration,reason\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ACCEPTED = ",Accepted,".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] REJECTED = ",Rejected,,,".getBytes(StandardCharsets.UTF_8);
+
+    @Override
+    public void writeHeader(ResultOutput out) throws IOException {
+        out.put(HEADER);
+    }
+
+    @Override
+    public void write(EvaluationResult result, ResultOutput out) throws IOException {
+        putField(result.getApplicantId(), out);
+        out.put((byte) ',');
+        putField(result.getName(), out);
+        out.put((byte) ',');
+        putField(result.getScholarshipType(), out);
+        if (result.isAccepted()) {
+            out.put(ACCEPTED);
+            putField(result.getType(), out);
+            out.put((byte) ',');
+            putField(result.getDuration(), out);
+            out.put((byte) ',');
+        } else {
+            out.put(REJECTED);
+            putField(result.getRejectionReason(), out);
+        }
+        out.put((byte) '\n');
+    }
+
+    /**
+     * Writes the field, in quotes if it has a comma, quote or line break.
+     */
+    private static void putField(String s, ResultOutput out) throws IOException {
+        if (!needsQuotes(s)) {
+            out.putText(s);
+            return;
+        }
+        out.put((byte) '"');
+        for (int i = 0; i < s.length(); ) {
+            if (s.charAt(i) == '"') {
+                out.put((byte) '"');
+            }
+            i += out.putChar(s, i);
+        }
+        out.put((byte) '"');
+    }
+
+    private static boolean needsQuotes(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
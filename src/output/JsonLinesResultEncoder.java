@@ -0,0 +1,71 @@
+package output;
+
+import model.EvaluationResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One JSON object per line, for example:
+ * {"applicantId":"1101","name":"Liam","scholarship":"Merit","accepted":true,"type":"Full","duration":"2 years"}
+ * Rejected results have "reason" instead of "type" and "duration".
+ */
+public class JsonLinesResultEncoder implements ResultEncoder {
+
+    private static final byte[] ID = bytes("{\"applicantId\":\"");
+    private static final byte[] NAME = bytes("\",\"name\":\"");
+    private static final byte[] SCHOLARSHIP = bytes("\",\"scholarship\":\"");
+    private static final byte[] ACCEPTED = bytes("\",\"accepted\":true,\"type\":\"");
+    private static final byte[] DURATION = bytes("\",\"duration\":\"");
+    private static final byte[] REJECTED = bytes("\",\"accepted\":false,\"reason\":\"");
+    private static final byte[] END = bytes("\"}\n");
+    private static final byte[] HEX = bytes("0123456789abcdef");
+
+    @Override
+    public void write(EvaluationResult result, ResultOutput out) throws IOException {
+        out.put(ID);
+        putEscaped(result.getApplicantId(), out);
+        out.put(NAME);
+        putEscaped(result.getName(), out);
+        out.put(SCHOLARSHIP);
+        putEscaped(result.getScholarshipType(), out);
+        if (result.isAccepted()) {
+            out.put(ACCEPTED);
+            putEscaped(result.getType(), out);
+            out.put(DURATION);
+            putEscaped(result.getDuration(), out);
+        } else {
+            out.put(REJECTED);
+            putEscaped(result.getRejectionReason(), out);
+        }
+        out.put(END);
+    }
+
+    /**
+     * Writes a JSON string body: quotes, backslashes and control characters are escaped.
+     */
+    private static void putEscaped(String s, ResultOutput out) throws IOException {
+        for (int i = 0; i < s.length(); ) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.put((byte) '\\');
+                out.put((byte) c);
+                i++;
+            } else if (c < 0x20) {
+                out.put((byte) '\\');
+                out.put((byte) 'u');
+                out.put((byte) '0');
+                out.put((byte) '0');
+                out.put(HEX[c >> 4]);
+                out.put(HEX[c & 0xF]);
+                i++;
+            } else {
+                i += out.putChar(s, i);
+            }
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,20 @@
+package output;
+
+import model.EvaluationResult;
+
+import java.io.IOException;
+
+/**
+ * Writes evaluation results in one output format.
+ * Encoders keep no state between records, so one encoder can be shared.
+ */
+public interface ResultEncoder {
+
+    /**
+     * Writes what comes before the first record (a header line or a file signature).
+     */
+    default void writeHeader(ResultOutput out) throws IOException {
+    }
+
+    void write(EvaluationResult result, ResultOutput out) throws IOException;
+}
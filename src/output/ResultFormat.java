@@ -0,0 +1,52 @@
+package output;
+
+/**
+ * Output formats that Main can write the results in.
+ */
+public enum ResultFormat {
+    TEXT("text"),
+    CSV("csv"),
+    JSONL("jsonl"),
+    BINARY("binary");
+
+    private final String name;
+
+    ResultFormat(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return new encoder for this format
+     */
+    public ResultEncoder newEncoder() {
+        switch (this) {
+            case CSV:
+                return new CsvResultEncoder();
+            case JSONL:
+                return new JsonLinesResultEncoder();
+            case BINARY:
+                return new BinaryResultEncoder();
+            default:
+                return new TextResultEncoder();
+        }
+    }
+
+    /**
+     * Finds the format by its name (text, csv, jsonl or binary).
+     *
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static ResultFormat fromString(String name) {
+        for (ResultFormat f : values()) {
+            if (f.name.equalsIgnoreCase(name.trim())) {
+                return f;
+            }
+        }
+        throw new IllegalArgumentException("Unknown output format: " + name);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,185 @@
+package output;
+
+import monitoring.OutputFlushEvent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Buffered writer on top of a byte channel, used by the result encoders.
+ * Text is encoded to UTF-8 char by char straight into the buffer,
+ * so no String or byte[] is created per record.
+ */
+public class ResultOutput implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final boolean closeChannel;
+
+    /**
+     * @param channel      where the bytes go
+     * @param closeChannel true to close the channel in close(), false to only flush
+     *                     (for example for System.out)
+     */
+    public ResultOutput(WritableByteChannel channel, boolean closeChannel) {
+        if (channel == null) {
+            throw new IllegalArgumentException("Channel cannot be null");
+        }
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.closeChannel = closeChannel;
+    }
+
+    /**
+     * Writes to a stream. The stream is flushed but not closed by close().
+     */
+    public static ResultOutput of(OutputStream out) {
+        return new ResultOutput(Channels.newChannel(out), false) {
+            @Override
+            public void flush() throws IOException {
+                super.flush();
+                out.flush();
+            }
+        };
+    }
+
+    public void put(byte b) throws IOException {
+        ensure(1);
+        buffer.put(b);
+    }
+
+    /**
+     * Writes pre-encoded bytes, for example a constant field name.
+     */
+    public void put(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.capacity()) {
+            flushBuffer();
+            channel.write(ByteBuffer.wrap(bytes));
+            return;
+        }
+        ensure(bytes.length);
+        buffer.put(bytes);
+    }
+
+    public void putShort(int value) throws IOException {
+        ensure(2);
+        buffer.putShort((short) value);
+    }
+
+    public void putInt(int value) throws IOException {
+        ensure(4);
+        buffer.putInt(value);
+    }
+
+    /**
+     * Writes the UTF-8 bytes of one char, or of a surrogate pair starting at index.
+     *
+     * @return number of chars used (1 or 2)
+     */
+    public int putChar(CharSequence s, int index) throws IOException {
+        ensure(4);
+        char c = s.charAt(index);
+        if (c < 0x80) {
+            buffer.put((byte) c);
+            return 1;
+        }
+        if (c < 0x800) {
+            buffer.put((byte) (0xC0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+            return 1;
+        }
+        if (Character.isHighSurrogate(c) && index + 1 < s.length()
+                && Character.isLowSurrogate(s.charAt(index + 1))) {
+            int cp = Character.toCodePoint(c, s.charAt(index + 1));
+            buffer.put((byte) (0xF0 | (cp >> 18)));
+            buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+            buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (cp & 0x3F)));
+            return 2;
+        }
+        if (Character.isSurrogate(c)) {
+            c = '?'; // Lone surrogate, same as String.getBytes
+            buffer.put((byte) c);
+            return 1;
+        }
+        buffer.put((byte) (0xE0 | (c >> 12)));
+        buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+        buffer.put((byte) (0x80 | (c & 0x3F)));
+        return 1;
+    }
+
+    /**
+     * Writes the text as UTF-8.
+     */
+    public void putText(CharSequence s) throws IOException {
+        for (int i = 0; i < s.length(); ) {
+            i += putChar(s, i);
+        }
+    }
+
+    /**
+     * @return number of UTF-8 bytes putText would write for the text
+     */
+    public static int utf8Length(CharSequence s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Writes the buffered bytes to the channel.
+     */
+    public void flush() throws IOException {
+        flushBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            if (closeChannel) {
+                channel.close();
+            }
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        OutputFlushEvent event = new OutputFlushEvent();
+        event.begin();
+        buffer.flip();
+        event.bytes = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        event.commit();
+    }
+}
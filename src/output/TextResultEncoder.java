@@ -0,0 +1,45 @@
+package output;
+
+import model.EvaluationResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The readable format of EvaluationResult.getFormattedResult,
+ * each result followed by an empty line (same as the default output).
+ */
+public class TextResultEncoder implements ResultEncoder {
+
+    private static final byte[] ID = bytes("Applicant ID: ");
+    private static final byte[] NAME = bytes(", Name: ");
+    private static final byte[] SCHOLARSHIP = bytes(", Scholarship: ");
+    private static final byte[] ACCEPTED = bytes(", Status: Accepted, Type: ");
+    private static final byte[] DURATION = bytes(", Duration: ");
+    private static final byte[] REJECTED = bytes(", Status: Rejected, Reason: ");
+    private static final byte[] END = bytes(System.lineSeparator() + System.lineSeparator());
+
+    @Override
+    public void write(EvaluationResult result, ResultOutput out) throws IOException {
+        out.put(ID);
+        out.putText(result.getApplicantId());
+        out.put(NAME);
+        out.putText(result.getName());
+        out.put(SCHOLARSHIP);
+        out.putText(result.getScholarshipType());
+        if (result.isAccepted()) {
+            out.put(ACCEPTED);
+            out.putText(result.getType());
+            out.put(DURATION);
+            out.putText(result.getDuration());
+        } else {
+            out.put(REJECTED);
+            out.putText(result.getRejectionReason());
+        }
+        out.put(END);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
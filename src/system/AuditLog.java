@@ -0,0 +1,465 @@
+package system;
+
+import enums.DocumentType;
+import model.ApplicantView;
+import model.EvaluationResult;
+import model.FamilyInfo;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Append-only binary log of every evaluation decision.
+ * Each record holds the raw inputs the rules use (every impact factor,
+ * not their sum), a fingerprint of them, and the EvaluationResult that
+ * came out, so a decision can be replayed later with the current rules
+ * (see tools.AuditReplay).
+ *
+ * Records are encoded into a batch buffer and copied in bulk into a
+ * memory-mapped segment at the end of the file. A new segment is mapped
+ * when the current one is full, and the file is cut to its real length
+ * on close. A record larger than the batch (an applicant with thousands
+ * of publications) is encoded into a buffer of its own and copied right
+ * after the batch before it.
+ *
+ * Record layout (big-endian):
+ *   int    record length (bytes after this field)
+ *   long   fingerprint of the input fields below
+ *   str    applicant ID, str name
+ *   double GPA, double income
+ *   byte   transcript valid
+ *   int    document mask (bit = DocumentType ordinal)
+ *   int    publication count, double impact factor of each publication
+ *   byte   family info present, double family income, int dependents
+ *   byte   accepted, str scholarship type, str award type, str duration, str rejection reason
+ * A str is a short length (-1 for null) followed by UTF-8 bytes.
+ */
+public class AuditLog implements Closeable {
+
+    private static final long MAGIC = 0x5343484155444954L; // "SCHAUDIT"
+    private static final int VERSION = 2; // 1 had the impact factor sum instead of the impact factors
+
+    private static final int SEGMENT_SIZE = 8 * 1024 * 1024;
+    private static final int BATCH_SIZE = 64 * 1024;
+    private static final int MAX_STRING_BYTES = Short.MAX_VALUE;
+
+    private static final DocumentType[] DOCUMENT_TYPES = DocumentType.values();
+
+    private final FileChannel channel;
+    private final ByteBuffer batch;
+    private MappedByteBuffer segment;
+    private long segmentStart;   // file position of the current segment
+    private long written;        // bytes written to the file so far
+    private long recordCount;
+
+    /**
+     * Creates a new log file (an existing file is replaced).
+     */
+    public AuditLog(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.batch = ByteBuffer.allocate(BATCH_SIZE);
+        this.segmentStart = 0;
+        this.written = 0;
+        this.recordCount = 0;
+        this.segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+
+        batch.putLong(MAGIC);
+        batch.putInt(VERSION);
+    }
+
+    /**
+     * Adds one decision to the log.
+     *
+     * @param applicant  inputs of the decision
+     * @param familyInfo family info used by the decision, or null
+     * @param result     the decision
+     */
+    public synchronized void append(ApplicantView applicant, FamilyInfo familyInfo, EvaluationResult result) {
+        byte[] id = encode(applicant.getApplicantId());
+        byte[] name = encode(applicant.getName());
+        byte[] scholarship = encode(result.getScholarshipType());
+        byte[] type = encode(result.getType());
+        byte[] duration = encode(result.getDuration());
+        byte[] reason = encode(result.getRejectionReason());
+
+        int publications = applicant.getPublicationCount();
+        int length = 8 + stringSize(id) + stringSize(name) + 8 + 8 + 1 + 4 + 4 + 8 * publications + 1 + 8 + 4
+                + 1 + stringSize(scholarship) + stringSize(type) + stringSize(duration) + stringSize(reason);
+        ByteBuffer out = batch;
+        if (4 + length > batch.capacity()) {
+            flushBatch();
+            out = ByteBuffer.allocate(4 + length); // too large for the batch, written on its own
+        } else if (batch.remaining() < 4 + length) {
+            flushBatch();
+        }
+
+        out.putInt(length);
+        int fingerprintPosition = out.position();
+        out.putLong(0L); // filled in below
+        int inputStart = out.position();
+
+        putString(out, id);
+        putString(out, name);
+        out.putDouble(applicant.getGpa());
+        out.putDouble(applicant.getIncome());
+        out.put((byte) (applicant.isTranscriptValid() ? 1 : 0));
+        out.putInt(documentMask(applicant));
+        out.putInt(publications);
+        for (int i = 0; i < publications; i++) {
+            out.putDouble(applicant.getImpactFactor(i));
+        }
+        out.put((byte) (familyInfo != null ? 1 : 0));
+        out.putDouble(familyInfo != null ? familyInfo.getFamilyIncome() : 0.0);
+        out.putInt(familyInfo != null ? familyInfo.getDependents() : 0);
+
+        out.putLong(fingerprintPosition, fingerprint(out.array(), inputStart, out.position()));
+
+        out.put((byte) (result.isAccepted() ? 1 : 0));
+        putString(out, scholarship);
+        putString(out, type);
+        putString(out, duration);
+        putString(out, reason);
+
+        if (out != batch) {
+            out.flip();
+            copyToSegments(out);
+        }
+        recordCount++;
+    }
+
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Writes the last batch and cuts the file to its real length.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flushBatch();
+            segment.force();
+            segment = null;
+            channel.truncate(written);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Copies the batch into the mapped segments.
+     */
+    private void flushBatch() {
+        batch.flip();
+        try {
+            copyToSegments(batch);
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * Copies the remaining bytes of the buffer into the mapped segment,
+     * mapping a new one when needed.
+     */
+    private void copyToSegments(ByteBuffer data) {
+        try {
+            while (data.hasRemaining()) {
+                if (!segment.hasRemaining()) {
+                    segment.force();
+                    segmentStart += SEGMENT_SIZE;
+                    segment = channel.map(FileChannel.MapMode.READ_WRITE, segmentStart, SEGMENT_SIZE);
+                }
+                int n = Math.min(data.remaining(), segment.remaining());
+                ByteBuffer part = data.slice();
+                part.limit(n);
+                segment.put(part);
+                data.position(data.position() + n);
+                written += n;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing audit log", e);
+        }
+    }
+
+    private static void putString(ByteBuffer out, byte[] bytes) {
+        if (bytes == null) {
+            out.putShort((short) -1);
+        } else {
+            out.putShort((short) bytes.length);
+            out.put(bytes);
+        }
+    }
+
+    private static byte[] encode(String s) {
+        if (s == null) {
+            return null;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("Text too long for the audit log: " + s.length() + " characters");
+        }
+        return bytes;
+    }
+
+    private static int stringSize(byte[] bytes) {
+        return 2 + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static int documentMask(ApplicantView applicant) {
+        int mask = 0;
+        for (DocumentType type : DOCUMENT_TYPES) {
+            if (applicant.hasDocument(type)) {
+                mask |= 1 << type.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a byte range.
+     */
+    private static long fingerprint(byte[] bytes, int from, int to) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            hash ^= bytes[i] & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Reads the records of a log file one by one.
+     */
+    public static class Reader implements Closeable {
+
+        private final DataInputStream in;
+        private byte[] buffer;
+        private long unread; // bytes of the file after the last record read
+
+        public Reader(Path file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024));
+            this.buffer = new byte[256];
+            this.unread = Files.size(file) - 12;
+            if (in.readLong() != MAGIC) {
+                in.close();
+                throw new IOException("Not an audit log: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                in.close();
+                throw new IOException("Unsupported audit log version " + version + ": " + file);
+            }
+        }
+
+        /**
+         * @return next record, or null at the end of the log
+         * @throws IOException if the record is damaged
+         */
+        public Record next() throws IOException {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                return null;
+            }
+            if (length == 0) {
+                return null; // Unused part of the last segment (log was not closed)
+            }
+            // A record may be larger than the batch, but never larger than the rest of the file
+            if (length <= 8 || length > unread - 4) {
+                throw new IOException("Damaged audit record (length " + length + ")");
+            }
+            unread -= 4 + length;
+            if (buffer.length < length) {
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+            }
+            in.readFully(buffer, 0, length);
+
+            ByteBuffer data = ByteBuffer.wrap(buffer, 0, length);
+            long storedFingerprint = data.getLong();
+            int inputStart = data.position();
+
+            Record r = new Record();
+            r.applicantId = getString(data);
+            r.name = getString(data);
+            r.gpa = data.getDouble();
+            r.income = data.getDouble();
+            r.transcriptValid = data.get() != 0;
+            r.documentMask = data.getInt();
+            int publications = data.getInt();
+            if (publications < 0 || publications > data.remaining() / 8) {
+                throw new IOException("Damaged audit record (" + publications + " publications)");
+            }
+            r.impactFactors = new double[publications];
+            for (int i = 0; i < publications; i++) {
+                r.impactFactors[i] = data.getDouble();
+            }
+            boolean hasFamilyInfo = data.get() != 0;
+            double familyIncome = data.getDouble();
+            int dependents = data.getInt();
+            r.familyInfo = hasFamilyInfo ? new FamilyInfo(familyIncome, dependents) : null;
+
+            if (fingerprint(buffer, inputStart, data.position()) != storedFingerprint) {
+                throw new IOException("Fingerprint mismatch for applicant " + r.applicantId);
+            }
+            r.fingerprint = storedFingerprint;
+
+            r.accepted = data.get() != 0;
+            r.scholarshipType = getString(data);
+            r.type = getString(data);
+            r.duration = getString(data);
+            r.rejectionReason = getString(data);
+            return r;
+        }
+
+        private static String getString(ByteBuffer data) {
+            short length = data.getShort();
+            if (length < 0) {
+                return null;
+            }
+            String s = new String(data.array(), data.arrayOffset() + data.position(), length, StandardCharsets.UTF_8);
+            data.position(data.position() + length);
+            return s;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * One logged decision. The inputs can be evaluated again through the ApplicantView methods.
+     */
+    public static class Record implements ApplicantView {
+
+        private long fingerprint;
+        private String applicantId;
+        private String name;
+        private double gpa;
+        private double income;
+        private boolean transcriptValid;
+        private int documentMask;
+        private double[] impactFactors;
+        private FamilyInfo familyInfo;
+
+        private boolean accepted;
+        private String scholarshipType;
+        private String type;
+        private String duration;
+        private String rejectionReason;
+
+        private Record() {
+        }
+
+        public long getFingerprint() {
+            return fingerprint;
+        }
+
+        @Override
+        public String getApplicantId() {
+            return applicantId;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public double getGpa() {
+            return gpa;
+        }
+
+        @Override
+        public double getIncome() {
+            return income;
+        }
+
+        @Override
+        public boolean isTranscriptValid() {
+            return transcriptValid;
+        }
+
+        @Override
+        public boolean hasDocument(DocumentType type) {
+            return type != null && (documentMask & (1 << type.ordinal())) != 0;
+        }
+
+        @Override
+        public int getPublicationCount() {
+            return impactFactors.length;
+        }
+
+        @Override
+        public double getImpactFactor(int index) {
+            return impactFactors[index];
+        }
+
+        /**
+         * Summed from the logged impact factors, so a change in how the
+         * rules sum them shows up in the replay.
+         */
+        @Override
+        public double getImpactFactorSum() {
+            return impactFactors.length == 0 ? 0.0 : Arrays.stream(impactFactors).sum();
+        }
+
+        /**
+         * @return family info used by the decision, or null
+         */
+        public FamilyInfo getFamilyInfo() {
+            return familyInfo;
+        }
+
+        public boolean isAccepted() {
+            return accepted;
+        }
+
+        public String getScholarshipType() {
+            return scholarshipType;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getDuration() {
+            return duration;
+        }
+
+        public String getRejectionReason() {
+            return rejectionReason;
+        }
+
+        /**
+         * @return true if the result has the same decision as this record
+         */
+        public boolean sameDecision(EvaluationResult result) {
+            return result != null
+                    && result.isAccepted() == accepted
+                    && equal(result.getScholarshipType(), scholarshipType)
+                    && equal(result.getType(), type)
+                    && equal(result.getDuration(), duration)
+                    && equal(result.getRejectionReason(), rejectionReason);
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package system;
+
+import applications.ScholarshipCategoryProvider;
+import enums.AwardType;
+import enums.RejectionReason;
+import model.EvaluationResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Assigns awards under a fixed budget and quota per scholarship category.
+ *
+ * Accepted results are offered with a priority (higher is better). For
+ * each category only the best "quota" candidates are kept, in a min-heap,
+ * so the memory and time are O(quota) and O(n log quota) instead of a
+ * full sort. When all results are offered, the kept candidates are
+ * awarded in priority order: a Full award if the budget still covers it,
+ * otherwise a Half award (with the Half duration given when the result
+ * was offered), otherwise a rejection.
+ *
+ * Rejected results, results of categories without a budget, and
+ * candidates that drop out of the heap are passed to the output at once.
+ *
+ * Budget labels are checked against the category registry and matched
+ * without regard to case, so "merit" sets the budget of Merit and an
+ * unknown label is reported instead of never applying.
+ */
+public class AwardAllocator {
+
+    private final CategoryRegistry categories;
+    private final List<Budget> budgets;
+    private Consumer<EvaluationResult> output;
+
+    /**
+     * Creates an allocator for the default categories.
+     */
+    public AwardAllocator() {
+        this(CategoryRegistry.withDefaults());
+    }
+
+    /**
+     * @param categories categories whose labels a budget may use
+     */
+    public AwardAllocator(CategoryRegistry categories) {
+        if (categories == null) {
+            throw new IllegalArgumentException("Category registry cannot be null");
+        }
+        this.categories = categories;
+        this.budgets = new ArrayList<>();
+        this.output = null;
+    }
+
+    /**
+     * Sets where the final results go (they are not in ID order).
+     */
+    public void setOutput(Consumer<EvaluationResult> output) {
+        if (output == null) {
+            throw new IllegalArgumentException("Output cannot be null");
+        }
+        this.output = output;
+    }
+
+    /**
+     * Sets the budget of one category.
+     *
+     * @param category  category label, for example "Merit" (case is ignored)
+     * @param budget    money available for the category
+     * @param quota     maximum number of awards
+     * @param fullCost  cost of one Full award
+     * @param halfCost  cost of one Half award
+     * @throws IllegalArgumentException if the label is not a known category
+     */
+    public void setBudget(String category, double budget, int quota, double fullCost, double halfCost) {
+        if (category == null || category.trim().isEmpty()) {
+            throw new IllegalArgumentException("Category cannot be empty");
+        }
+        if (budget < 0 || quota < 0 || fullCost < 0 || halfCost < 0) {
+            throw new IllegalArgumentException("Budget values cannot be negative");
+        }
+        ScholarshipCategoryProvider provider = categories.findByLabel(category.trim());
+        if (provider == null) {
+            throw new IllegalArgumentException("Unknown scholarship category: " + category.trim());
+        }
+        if (findBudget(provider.getLabel()) != null) {
+            throw new IllegalArgumentException("Budget for " + provider.getLabel() + " is already set");
+        }
+        budgets.add(new Budget(provider.getLabel(), budget, quota, fullCost, halfCost));
+    }
+
+    /**
+     * Parses and sets one budget line: category, budget, quota, fullCost, halfCost
+     *
+     * @throws IllegalArgumentException if the line is malformed
+     */
+    public void setBudget(String line) {
+        String[] parts = line.split(",");
+        if (parts.length != 5) {
+            throw new IllegalArgumentException("Budget line needs 5 values: " + line);
+        }
+        try {
+            setBudget(parts[0], Double.parseDouble(parts[1].trim()), Integer.parseInt(parts[2].trim()),
+                    Double.parseDouble(parts[3].trim()), Double.parseDouble(parts[4].trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in budget line: " + line);
+        }
+    }
+
+    /**
+     * Offers one result that cannot be cut to a Half award
+     * (a rejection, or an award that is already Half).
+     *
+     * @param priority ranking key of the applicant (higher is better)
+     */
+    public void offer(EvaluationResult result, double priority) {
+        offer(result, priority, result.getDuration());
+    }
+
+    /**
+     * Offers one evaluated result.
+     *
+     * @param priority     ranking key of the applicant (higher is better)
+     * @param halfDuration duration of the award if it is cut to Half
+     *                     (see ScholarshipCategoryProvider.getDuration)
+     */
+    public void offer(EvaluationResult result, double priority, String halfDuration) {
+        if (output == null) {
+            throw new IllegalStateException("Output is not set");
+        }
+        Budget budget = result.isAccepted() ? findBudget(result.getScholarshipType()) : null;
+        if (budget == null) {
+            output.accept(result);
+            return;
+        }
+
+        Candidate candidate = new Candidate(result, priority, halfDuration);
+        if (budget.best.size() < budget.quota) {
+            budget.best.add(candidate);
+        } else if (budget.quota > 0 && candidate.compareTo(budget.best.peek()) > 0) {
+            Candidate dropped = budget.best.poll();
+            budget.best.add(candidate);
+            output.accept(reject(dropped.result, RejectionReason.QUOTA_REACHED));
+        } else {
+            output.accept(reject(result, RejectionReason.QUOTA_REACHED));
+        }
+    }
+
+    /**
+     * Awards the kept candidates of every category and passes them to the output.
+     */
+    public void finish() {
+        if (output == null) {
+            throw new IllegalStateException("Output is not set");
+        }
+        for (Budget budget : budgets) {
+            // Take the heap out in ascending order, then walk it from the best
+            Candidate[] ranked = new Candidate[budget.best.size()];
+            for (int i = 0; i < ranked.length; i++) {
+                ranked[i] = budget.best.poll();
+            }
+
+            double left = budget.amount;
+            for (int i = ranked.length - 1; i >= 0; i--) {
+                EvaluationResult r = ranked[i].result;
+                boolean wantsFull = AwardType.FULL.toString().equals(r.getType());
+
+                if (wantsFull && left >= budget.fullCost) {
+                    left -= budget.fullCost;
+                    output.accept(r);
+                } else if (left >= budget.halfCost) {
+                    left -= budget.halfCost;
+                    output.accept(wantsFull ? withType(r, AwardType.HALF, ranked[i].halfDuration) : r);
+                } else {
+                    output.accept(reject(r, RejectionReason.BUDGET_EXHAUSTED));
+                }
+            }
+        }
+    }
+
+    private Budget findBudget(String category) {
+        for (Budget b : budgets) {
+            if (b.category.equalsIgnoreCase(category)) {
+                return b;
+            }
+        }
+        return null;
+    }
+
+    private static EvaluationResult reject(EvaluationResult r, RejectionReason reason) {
+        return new EvaluationResult(r.getApplicantId(), r.getName(), r.getScholarshipType(), reason.getMessage());
+    }
+
+    private static EvaluationResult withType(EvaluationResult r, AwardType type, String duration) {
+        return new EvaluationResult(r.getApplicantId(), r.getName(), r.getScholarshipType(),
+                type.toString(), duration);
+    }
+
+    /**
+     * Budget, quota and current top candidates of one category.
+     */
+    private static final class Budget {
+        final String category;
+        final double amount;
+        final int quota;
+        final double fullCost;
+        final double halfCost;
+        final PriorityQueue<Candidate> best; // min-heap, the weakest kept candidate is on top
+
+        Budget(String category, double amount, int quota, double fullCost, double halfCost) {
+            this.category = category;
+            this.amount = amount;
+            this.quota = quota;
+            this.fullCost = fullCost;
+            this.halfCost = halfCost;
+            this.best = new PriorityQueue<>(Math.max(1, Math.min(quota, 1 << 16)));
+        }
+    }
+
+    /**
+     * One accepted result with its priority.
+     * Ties are broken by applicant ID (lower ID wins), so the outcome is stable.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+        final EvaluationResult result;
+        final double priority;
+        final String halfDuration;
+
+        Candidate(EvaluationResult result, double priority, String halfDuration) {
+            this.result = result;
+            this.priority = priority;
+            this.halfDuration = halfDuration;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            int c = Double.compare(priority, other.priority);
+            if (c != 0) {
+                return c;
+            }
+            return other.result.getApplicantId().compareTo(result.getApplicantId());
+        }
+    }
+}
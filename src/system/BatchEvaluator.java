@@ -0,0 +1,111 @@
+package system;
+
+import applications.Application;
+import applications.MeritApplication;
+import applications.NeedApplication;
+import applications.ResearchApplication;
+import model.EvaluationResult;
+
+import java.util.List;
+
+/**
+ * Evaluates a mixed list of applications one category at a time.
+ *
+ * A single loop over Merit, Need and Research applications calls
+ * evaluate() on three classes from one call site, which the JIT cannot
+ * inline. Here the applications are first grouped by class with a
+ * counting sort (one pass to count, one to place), into one array with a
+ * range per class. Each range is evaluated in its own loop, so every
+ * evaluate() call site only ever sees one class. The results are
+ * written back at the original positions. Applications of plug-in
+ * categories go through a general loop.
+ */
+public final class BatchEvaluator {
+
+    private static final int MERIT = 0;
+    private static final int NEED = 1;
+    private static final int RESEARCH = 2;
+    private static final int OTHER = 3;
+
+    private BatchEvaluator() {
+    }
+
+    /**
+     * @return results in the same order as the applications
+     */
+    public static EvaluationResult[] evaluate(List<Application> applications) {
+        int n = applications.size();
+
+        // 1) Count the applications of each class
+        byte[] kinds = new byte[n];
+        int[] start = new int[OTHER + 2];
+        for (int i = 0; i < n; i++) {
+            int kind = kindOf(applications.get(i));
+            kinds[i] = (byte) kind;
+            start[kind + 1]++;
+        }
+        for (int k = 1; k < start.length; k++) {
+            start[k] += start[k - 1];
+        }
+
+        // 2) Place them in one array, one range per class, keeping their positions
+        Application[] grouped = new Application[n];
+        int[] positions = new int[n];
+        int[] next = start.clone();
+        for (int i = 0; i < n; i++) {
+            int slot = next[kinds[i]]++;
+            grouped[slot] = applications.get(i);
+            positions[slot] = i;
+        }
+
+        // 3) One loop per class, results go back to their positions
+        EvaluationResult[] results = new EvaluationResult[n];
+        evaluateMerit(grouped, positions, start[MERIT], start[MERIT + 1], results);
+        evaluateNeed(grouped, positions, start[NEED], start[NEED + 1], results);
+        evaluateResearch(grouped, positions, start[RESEARCH], start[RESEARCH + 1], results);
+        evaluateOther(grouped, positions, start[OTHER], start[OTHER + 1], results);
+        return results;
+    }
+
+    private static int kindOf(Application app) {
+        Class<?> type = app.getClass();
+        if (type == MeritApplication.class) {
+            return MERIT;
+        }
+        if (type == NeedApplication.class) {
+            return NEED;
+        }
+        if (type == ResearchApplication.class) {
+            return RESEARCH;
+        }
+        return OTHER;
+    }
+
+    private static void evaluateMerit(Application[] apps, int[] positions, int from, int to,
+                                      EvaluationResult[] results) {
+        for (int i = from; i < to; i++) {
+            results[positions[i]] = ((MeritApplication) apps[i]).evaluate();
+        }
+    }
+
+    private static void evaluateNeed(Application[] apps, int[] positions, int from, int to,
+                                     EvaluationResult[] results) {
+        for (int i = from; i < to; i++) {
+            results[positions[i]] = ((NeedApplication) apps[i]).evaluate();
+        }
+    }
+
+    private static void evaluateResearch(Application[] apps, int[] positions, int from, int to,
+                                         EvaluationResult[] results) {
+        for (int i = from; i < to; i++) {
+            results[positions[i]] = ((ResearchApplication) apps[i]).evaluate();
+        }
+    }
+
+    private static void evaluateOther(Application[] apps, int[] positions, int from, int to,
+                                      EvaluationResult[] results) {
+        for (int i = from; i < to; i++) {
+            results[positions[i]] = apps[i].evaluate();
+        }
+    }
+}
@@ -1,23 +1,131 @@
 package system;
 
+import applications.Application;
+import applications.DecisionTrace;
+import applications.ScholarshipCategoryProvider;
+import enums.ConflictType;
 import enums.DocumentType;
+import enums.RejectionReason;
 import model.Applicant;
 import model.Document;
+import model.EvaluationResult;
 import model.FamilyInfo;
-import model.Publication;
+import model.StringDictionary;
+import monitoring.FileReadEvent;
+import monitoring.GroupingEvent;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Reads the ScholarshipApplications.csv file, parses the data,
  * and populates the provided lists (no Maps, only ArrayLists).
+ * Files and streams are always read as UTF-8, whatever the platform
+ * default is, so a shard sent to a worker process reads the same.
+ * Every load starts a new StringDictionary that the applicants of that
+ * load share for their names and publication titles.
  */
 public class CSVReader {
 
+    private static final Comparator<String[]> BY_APPLICANT_ID = new Comparator<String[]>() {
+        @Override
+        public int compare(String[] a, String[] b) {
+            return a[1].compareTo(b[1]);
+        }
+    };
+
+    // Sizing hints for the row list
+    private static final int SAMPLE_BYTES = 64 * 1024;        // bytes read to measure the line length
+    private static final int DEFAULT_LINE_BYTES = 24;         // used when the sample has no line end (or is compressed)
+    private static final int GZIP_RATIO_GUESS = 4;            // CSV text usually compresses about 4x
+    private static final int MAX_ROW_ESTIMATE = 1 << 26;      // do not reserve more than this up front
+
+    private static final DocumentType[] DOCUMENT_TYPES = DocumentType.values();
+
+    private final CategoryRegistry categories; // Used by pre-screening to name the category
+    private ConflictReport conflictReport;     // null when conflicts are not collected
+    private NameMatchIndex nameIndex;          // null when names are not indexed
+    private IngestCheckpoint checkpoint;       // null when loads are not checkpointed
+    private StringDictionary dictionary;       // names and titles of the current load
+
+    public CSVReader() {
+        this(CategoryRegistry.withDefaults());
+    }
+
+    public CSVReader(CategoryRegistry categories) {
+        if (categories == null) {
+            throw new IllegalArgumentException("Category registry cannot be null");
+        }
+        this.categories = categories;
+        this.conflictReport = null;
+        this.nameIndex = null;
+        this.checkpoint = null;
+        this.dictionary = new StringDictionary();
+    }
+
+    /**
+     * Sets the report that duplicate and conflicting records are added to
+     * (null to turn detection off). Detection runs on the grouped lines of
+     * each applicant while it is built, so it adds almost no load time.
+     */
+    public void setConflictReport(ConflictReport conflictReport) {
+        this.conflictReport = conflictReport;
+    }
+
+    /**
+     * Sets the checkpoint used when a single file is read (null to turn it off).
+     * A load that crashed goes on from the last checkpoint (see IngestCheckpoint).
+     * Directories and globs of shards are read without checkpoints.
+     */
+    public void setCheckpoint(IngestCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Sets the index that every applicant name is added to (null to turn it off).
+     * Pre-screened applicants are indexed too.
+     */
+    public void setNameIndex(NameMatchIndex nameIndex) {
+        this.nameIndex = nameIndex;
+    }
+
+    /**
+     * Receives the applicants built by the reader, one at a time.
+     * Applicants are delivered in applicant ID order.
+     */
+    public interface ApplicantSink {
+
+        /**
+         * Called for each applicant that was built.
+         *
+         * @param familyInfo last valid 'I' row of the applicant, or null
+         */
+        void applicant(Applicant applicant, FamilyInfo familyInfo);
+
+        /**
+         * Called for each applicant rejected by pre-screening.
+         */
+        void preScreened(EvaluationResult result);
+    }
+
     /**
      * Reads the CSV file and populates the given lists with applicant data.
      * Uses an ArrayList-based approach (no Map/HashMap).
@@ -27,11 +135,27 @@ public class CSVReader {
      * @param familyInfoApplicantIds List of applicant IDs corresponding to each FamilyInfo.
      * @param familyInfoList         List of FamilyInfo objects.
      */
-    @SuppressWarnings("CallToPrintStackTrace")
     public void readData(String filePath,
                          List<Applicant> applicantsList,
                          List<String> familyInfoApplicantIds,
                          List<FamilyInfo> familyInfoList) {
+        readData(filePath, applicantsList, familyInfoApplicantIds, familyInfoList, null);
+    }
+
+    /**
+     * Same as readData, with an optional pre-screening stage.
+     * When preScreenedResults is not null, the general checks (ENR document,
+     * valid transcript, GPA >= 2.50) are done on the raw 'A', 'D' and 'T' rows.
+     * Applicants that fail them are added there as rejected results and
+     * no Applicant object is built for them.
+     *
+     * @param preScreenedResults List to fill with early rejections, or null to disable pre-screening.
+     */
+    public void readData(String filePath,
+                         List<Applicant> applicantsList,
+                         List<String> familyInfoApplicantIds,
+                         List<FamilyInfo> familyInfoList,
+                         List<EvaluationResult> preScreenedResults) {
 
         if (applicantsList == null || familyInfoApplicantIds == null || familyInfoList == null) {
             throw new IllegalArgumentException("Lists cannot be null");
@@ -41,155 +165,700 @@ public class CSVReader {
         applicantsList.clear();
         familyInfoApplicantIds.clear();
         familyInfoList.clear();
+        if (preScreenedResults != null) {
+            preScreenedResults.clear();
+        }
 
-        // 1) Read all lines into memory
-        List<String[]> allLines = new ArrayList<>();
+        readData(filePath, preScreenedResults != null,
+                listSink(applicantsList, familyInfoApplicantIds, familyInfoList, preScreenedResults));
+    }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
+    /**
+     * Same as readData with a file path, but reads CSV rows from a stream
+     * (for example a shard sent by ShardCoordinator). The stream is not closed.
+     */
+    public void readData(InputStream in,
+                         List<Applicant> applicantsList,
+                         List<String> familyInfoApplicantIds,
+                         List<FamilyInfo> familyInfoList,
+                         List<EvaluationResult> preScreenedResults) throws IOException {
 
-            while ((line = br.readLine()) != null) {
-                if (line.trim().isEmpty()) {
-                    continue; // Skip empty lines
-                }
+        if (applicantsList == null || familyInfoApplicantIds == null || familyInfoList == null) {
+            throw new IllegalArgumentException("Lists cannot be null");
+        }
 
-                String[] parts = line.split(",");
-                if (parts.length < 2) {
-                    System.err.println("Skipping malformed line: " + line);
-                    continue;
+        applicantsList.clear();
+        familyInfoApplicantIds.clear();
+        familyInfoList.clear();
+        if (preScreenedResults != null) {
+            preScreenedResults.clear();
+        }
+
+        readData(in, preScreenedResults != null,
+                listSink(applicantsList, familyInfoApplicantIds, familyInfoList, preScreenedResults));
+    }
+
+    /**
+     * Same as readData with a file path and a sink, but reads CSV rows from
+     * a stream. The stream is not closed.
+     */
+    public void readData(InputStream in, boolean preScreen, ApplicantSink sink) throws IOException {
+        if (sink == null) {
+            throw new IllegalArgumentException("Sink cannot be null");
+        }
+        dictionary = new StringDictionary();
+        FileReadEvent event = FileReadEvent.start("stream");
+        List<String[]> allLines = readLines(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), 1024);
+        event.finish(-1, allLines.size());
+        buildAll(allLines, preScreen, sink);
+    }
+
+    /**
+     * @return sink that adds the applicants and results to the lists
+     */
+    private static ApplicantSink listSink(List<Applicant> applicantsList,
+                                          List<String> familyInfoApplicantIds,
+                                          List<FamilyInfo> familyInfoList,
+                                          List<EvaluationResult> preScreenedResults) {
+        return new ApplicantSink() {
+            @Override
+            public void applicant(Applicant applicant, FamilyInfo familyInfo) {
+                applicantsList.add(applicant);
+                if (familyInfo != null) {
+                    familyInfoApplicantIds.add(applicant.getId());
+                    familyInfoList.add(familyInfo);
                 }
+            }
 
-                allLines.add(parts);
+            @Override
+            public void preScreened(EvaluationResult result) {
+                preScreenedResults.add(result);
             }
+        };
+    }
+
+    /**
+     * Reads the CSV file and passes every applicant to the sink as soon as
+     * it is built. Rows are grouped by sorting them on the applicant ID, so
+     * the sink receives the applicants in ID order.
+     *
+     * The path can also be a directory or a glob (for example Files/*.csv).
+     * Then every shard is read in parallel and the rows are merged in file
+     * name order, so the rules stay the same as for one concatenated file
+     * (first 'A' line wins, last 'I' line wins). Shards ending with .gz are
+     * decompressed on the fly.
+     *
+     * @param filePath  Path to the CSV file, a directory of shards, or a glob.
+     * @param preScreen true to reject applicants that fail the general checks before building them
+     * @param sink      Receives the applicants and the pre-screened results.
+     */
+    @SuppressWarnings("CallToPrintStackTrace")
+    public void readData(String filePath, boolean preScreen, ApplicantSink sink) {
+        if (sink == null) {
+            throw new IllegalArgumentException("Sink cannot be null");
+        }
+        dictionary = new StringDictionary(); // The strings of the last load go away with its applicants
+
+        // 1) Read all lines of every shard into memory
+        List<String[]> allLines;
+        try {
+            allLines = readAllLines(filePath);
         } catch (IOException e) {
             System.err.println("Error reading file: " + filePath);
             e.printStackTrace();
             return;
         }
 
-        // 2) Collect all distinct applicant IDs
-        List<String> applicantIds = new ArrayList<>();
-        for (String[] parts : allLines) {
-            String applicantId = parts[1].trim();
-            if (!applicantIds.contains(applicantId)) {
-                applicantIds.add(applicantId);
+        buildAll(allLines, preScreen, sink);
+    }
+
+    /**
+     * Reads a single file whose rows are already sorted by applicant ID and
+     * builds each applicant as soon as its last row is read, so only the
+     * rows of one applicant are in memory. The sink gets the same applicants
+     * in the same order as with readData.
+     *
+     * The file is scanned once first to check the order (without keeping
+     * any rows), because rows of an applicant that come later in an
+     * unsorted file would otherwise be missed.
+     *
+     * @return false if the path is not a single file or its rows are not
+     *         sorted by applicant ID; nothing is passed to the sink then
+     */
+    public boolean readSortedData(String filePath, boolean preScreen, ApplicantSink sink) throws IOException {
+        if (sink == null) {
+            throw new IllegalArgumentException("Sink cannot be null");
+        }
+        List<Path> shards = findShards(filePath);
+        if (shards.size() != 1 || !isSortedById(shards.get(0))) {
+            return false;
+        }
+
+        Path file = shards.get(0);
+        dictionary = new StringDictionary();
+        FileReadEvent event = FileReadEvent.start(file);
+        int rows = 0;
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(open(file), StandardCharsets.UTF_8))) {
+            List<String[]> group = new ArrayList<>();
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] parts = splitRow(line);
+                if (parts == null) {
+                    continue;
+                }
+                rows++;
+                if (!group.isEmpty() && !group.get(0)[1].equals(parts[1])) {
+                    buildApplicant(group.get(0)[1], group, preScreen, sink);
+                    group = new ArrayList<>();
+                }
+                group.add(parts);
+            }
+            if (!group.isEmpty()) {
+                buildApplicant(group.get(0)[1], group, preScreen, sink);
+            }
+        }
+        event.finish(Files.size(file), rows);
+        return true;
+    }
+
+    /**
+     * @return true if the applicant IDs of the rows never go down
+     *         (rows that splitRow skips are ignored, and nothing is reported)
+     */
+    private static boolean isSortedById(Path file) throws IOException {
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(open(file), StandardCharsets.UTF_8))) {
+            String previous = null;
+            String line;
+            while ((line = br.readLine()) != null) {
+                int start = line.indexOf(',') + 1;
+                if (start == 0 || !hasField(line, start)) {
+                    continue; // Empty or malformed, skipped by splitRow too
+                }
+                int end = line.indexOf(',', start);
+                String id = (end < 0 ? line.substring(start) : line.substring(start, end)).trim();
+                if (previous != null && id.compareTo(previous) < 0) {
+                    return false;
+                }
+                previous = id;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the line has a character other than ',' from the given index
+     *         (String.split drops trailing empty fields, so "A,,," has no ID field)
+     */
+    private static boolean hasField(String line, int from) {
+        for (int i = from; i < line.length(); i++) {
+            if (line.charAt(i) != ',') {
+                return true;
             }
         }
+        return false;
+    }
 
-        // 3) For each applicant ID, process its lines and build an Applicant
-        for (String applicantId : applicantIds) {
+    /**
+     * Groups the lines by applicant ID and builds every applicant.
+     */
+    private void buildAll(List<String[]> allLines, boolean preScreen, ApplicantSink sink) {
+        GroupingEvent event = new GroupingEvent();
+        event.begin();
 
-            // Collect all lines belonging to this applicant
-            List<String[]> linesForApplicant = new ArrayList<>();
-            for (String[] parts : allLines) {
-                String id = parts[1].trim();
-                if (id.equals(applicantId)) {
-                    linesForApplicant.add(parts);
+        // 2) Sort the lines by applicant ID.
+        // The sort is stable, so the lines of one applicant keep their file order.
+        allLines.sort(BY_APPLICANT_ID);
+
+        // 3) Each run of equal IDs is one applicant
+        int applicants = 0;
+        int start = 0;
+        while (start < allLines.size()) {
+            String applicantId = allLines.get(start)[1];
+            int end = start + 1;
+            while (end < allLines.size() && allLines.get(end)[1].equals(applicantId)) {
+                end++;
+            }
+
+            buildApplicant(applicantId, allLines.subList(start, end), preScreen, sink);
+            applicants++;
+            start = end;
+        }
+
+        event.rows = allLines.size();
+        event.applicants = applicants;
+        event.commit();
+    }
+
+    /**
+     * Reads the lines of one file or of all shards that the path points to.
+     */
+    private List<String[]> readAllLines(String filePath) throws IOException {
+        List<Path> shards = findShards(filePath);
+        if (shards.size() == 1) {
+            if (checkpoint != null) {
+                return checkpoint.readLines(shards.get(0), estimateRowCount(shards.get(0)));
+            }
+            return readLines(shards.get(0), estimateRowCount(shards.get(0)));
+        }
+        if (checkpoint != null) {
+            System.err.println("Checkpoints are only used for a single file, reading " + shards.size()
+                    + " shards without them");
+        }
+
+        int threads = Math.min(shards.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<String[]>>> parts = new ArrayList<>(shards.size());
+            for (Path shard : shards) {
+                parts.add(pool.submit(() -> readLines(shard, estimateRowCount(shard))));
+            }
+
+            List<List<String[]>> shardLines = new ArrayList<>(shards.size());
+            int total = 0;
+            for (int i = 0; i < parts.size(); i++) {
+                try {
+                    List<String[]> lines = parts.get(i).get();
+                    shardLines.add(lines);
+                    total += lines.size();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IOException("Error reading shard " + shards.get(i), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while reading " + filePath, e);
                 }
             }
 
-            // Find the 'A' line (Applicant base information)
-            String[] aLine = null;
-            for (String[] parts : linesForApplicant) {
-                if (parts[0].trim().equals("A")) {
-                    aLine = parts;
-                    break;
+            // Merge in shard order, so "last 'I' line wins" does not depend on timing
+            List<String[]> allLines = new ArrayList<>(total);
+            for (List<String[]> lines : shardLines) {
+                allLines.addAll(lines);
+            }
+            return allLines;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Finds the files that a path points to.
+     * A directory gives all .csv and .csv.gz files in it, a glob gives all
+     * matching files in its folder. Files are sorted by name.
+     */
+    static List<Path> findShards(String filePath) throws IOException {
+        List<Path> shards = new ArrayList<>();
+        Path path = Paths.get(filePath);
+
+        if (Files.isDirectory(path)) {
+            try (DirectoryStream<Path> dir = Files.newDirectoryStream(path, "*.{csv,csv.gz}")) {
+                for (Path p : dir) {
+                    shards.add(p);
+                }
+            }
+        } else if (isGlob(filePath)) {
+            Path parent = path.getParent() != null ? path.getParent() : Paths.get(".");
+            if (isGlob(parent.toString())) {
+                throw new IOException("Only the file name part of the path can be a glob: " + filePath);
+            }
+            try (DirectoryStream<Path> dir = Files.newDirectoryStream(parent, path.getFileName().toString())) {
+                for (Path p : dir) {
+                    if (Files.isRegularFile(p)) {
+                        shards.add(p);
+                    }
                 }
             }
+        } else {
+            shards.add(path);
+        }
 
-            if (aLine == null) {
-                System.err.println("Skipping applicant " + applicantId + ": 'A' (Applicant) line not found.");
-                continue; // Mandatory 'A' line is missing
+        if (shards.isEmpty()) {
+            throw new IOException("No CSV files found at " + filePath);
+        }
+        shards.sort(null);
+        return shards;
+    }
+
+    private static boolean isGlob(String path) {
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') {
+                return true;
             }
+        }
+        return false;
+    }
 
-            Applicant applicant;
-            try {
-                // A, applicantID, name, GPA, income
-                String name = aLine[2];
-                double gpa = Double.parseDouble(aLine[3].trim());
-                double income = Double.parseDouble(aLine[4].trim());
-                applicant = new Applicant(applicantId, name, gpa, income);
-            } catch (Exception e) {
-                System.err.println("Skipping applicant " + applicantId + ": Error processing 'A' line. " + e.getMessage());
-                continue;
+    /**
+     * Guesses the number of rows of a file from its size and the average
+     * length of the lines in the first block. Used to size the row list.
+     */
+    private int estimateRowCount(Path file) throws IOException {
+        long size = Files.size(file);
+        if (file.getFileName().toString().endsWith(".gz")) {
+            size *= GZIP_RATIO_GUESS;
+        }
+
+        byte[] sample = new byte[SAMPLE_BYTES];
+        int read;
+        try (InputStream in = Files.newInputStream(file)) {
+            read = in.readNBytes(sample, 0, sample.length);
+        }
+
+        int newlines = 0;
+        for (int i = 0; i < read; i++) {
+            if (sample[i] == '\n') {
+                newlines++;
             }
+        }
+        if (newlines == 0 || file.getFileName().toString().endsWith(".gz")) {
+            return (int) Math.min(MAX_ROW_ESTIMATE, size / DEFAULT_LINE_BYTES + 16);
+        }
 
-            // 4) Process all other lines for this applicant
-            for (String[] parts : linesForApplicant) {
-                String prefix = parts[0].trim();
+        long averageLine = Math.max(1, read / newlines);
+        return (int) Math.min(MAX_ROW_ESTIMATE, size / averageLine + 16);
+    }
 
-                try {
-                    switch (prefix) {
-                        case "A":
-                            // Already processed above
-                            break;
+    /**
+     * Reads and splits the lines of one file (gzip if the name ends with .gz).
+     * Empty lines are skipped, lines without an applicant ID are reported and skipped.
+     *
+     * @param expectedRows size hint for the row list
+     */
+    private List<String[]> readLines(Path file, int expectedRows) throws IOException {
+        FileReadEvent event = FileReadEvent.start(file);
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(open(file), StandardCharsets.UTF_8))) {
+            List<String[]> lines = readLines(br, expectedRows);
+            event.finish(Files.size(file), lines.size());
+            return lines;
+        }
+    }
+
+    /**
+     * Opens a file for reading, decompressing it if the name ends with .gz.
+     */
+    static InputStream open(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        if (file.getFileName().toString().endsWith(".gz")) {
+            in = new GZIPInputStream(in, 64 * 1024);
+        }
+        return in;
+    }
 
-                        case "D":
-                            // D, applicantID, documentType, durationInMonths
-                            if (parts.length < 4) {
-                                System.err.println("Skipping malformed 'D' line for applicant " + applicantId);
-                                break;
-                            }
-                            DocumentType type = DocumentType.fromString(parts[2].trim());
-                            int duration = Integer.parseInt(parts[3].trim());
-                            applicant.addDocument(new Document(type, duration));
+    /**
+     * Reads and splits the lines of a reader (the reader is not closed).
+     */
+    private List<String[]> readLines(BufferedReader br, int expectedRows) throws IOException {
+        List<String[]> lines = new ArrayList<>(expectedRows);
+        String line;
+
+        while ((line = br.readLine()) != null) {
+            String[] parts = splitRow(line);
+            if (parts != null) {
+                lines.add(parts);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Splits one CSV row into its fields, with the applicant ID trimmed.
+     *
+     * @return the fields, or null for an empty line or a line without an applicant ID (reported)
+     */
+    static String[] splitRow(String line) {
+        if (line.trim().isEmpty()) {
+            return null; // Skip empty lines
+        }
+
+        String[] parts = line.split(",");
+        if (parts.length < 2) {
+            System.err.println("Skipping malformed line: " + line);
+            return null;
+        }
+
+        parts[1] = parts[1].trim(); // Applicant ID is used as the group key
+        return parts;
+    }
+
+    /**
+     * Builds one applicant from all of its lines and passes it to the sink.
+     * Nothing is passed if the lines have no valid 'A' line.
+     *
+     * @param linesForApplicant lines of this applicant, in file order
+     */
+    void buildApplicant(String applicantId, List<String[]> linesForApplicant,
+                                boolean preScreen, ApplicantSink sink) {
+
+        if (conflictReport != null) {
+            detectConflicts(applicantId, linesForApplicant);
+        }
+
+        // Find the 'A' line (Applicant base information)
+        String[] aLine = null;
+        for (String[] parts : linesForApplicant) {
+            if (parts[0].trim().equals("A")) {
+                aLine = parts;
+                break;
+            }
+        }
+
+        if (aLine == null) {
+            System.err.println("Skipping applicant " + applicantId + ": 'A' (Applicant) line not found.");
+            return; // Mandatory 'A' line is missing
+        }
+
+        Applicant applicant;
+        try {
+            // A, applicantID, name, GPA, income
+            String name = aLine[2];
+            double gpa = Double.parseDouble(aLine[3].trim());
+            double income = Double.parseDouble(aLine[4].trim());
+            Applicant.validate(applicantId, name, gpa, income);
+
+            // Only applicants with a valid 'A' line are compared for duplicates
+            if (nameIndex != null) {
+                nameIndex.add(applicantId, name);
+            }
+
+            if (preScreen) {
+                EvaluationResult rejection = preScreen(applicantId, name, gpa, linesForApplicant);
+                if (rejection != null) {
+                    // Report malformed rows the same way as for a built applicant
+                    readRows(applicantId, linesForApplicant, null);
+                    sink.preScreened(rejection);
+                    return; // No need to build this applicant
+                }
+            }
+
+            applicant = new Applicant(applicantId, name, gpa, income, dictionary);
+        } catch (Exception e) {
+            System.err.println("Skipping applicant " + applicantId + ": Error processing 'A' line. " + e.getMessage());
+            return;
+        }
+
+        FamilyInfo familyInfo = readRows(applicantId, linesForApplicant, applicant);
+
+        applicant.trimToSize(); // Exact-size storage from now on
+        sink.applicant(applicant, familyInfo);
+    }
+
+    /**
+     * Reads the rows after the 'A' line into the applicant and reports the
+     * malformed ones. With a null applicant the rows are only checked and
+     * reported (used for applicants rejected by pre-screening), so the
+     * warnings do not depend on pre-screening.
+     *
+     * @return family info of the last valid 'I' row, or null
+     */
+    private FamilyInfo readRows(String applicantId, List<String[]> linesForApplicant, Applicant applicant) {
+        FamilyInfo familyInfo = null;
+
+        // Process all other lines for this applicant
+        for (String[] parts : linesForApplicant) {
+            String prefix = parts[0].trim();
+
+            try {
+                switch (prefix) {
+                    case "A":
+                        // Already processed above
+                        break;
+
+                    case "D":
+                        // D, applicantID, documentType, durationInMonths
+                        if (parts.length < 4) {
+                            System.err.println("Skipping malformed 'D' line for applicant " + applicantId);
                             break;
+                        }
+                        DocumentType type = DocumentType.fromString(parts[2].trim());
+                        int duration = Integer.parseInt(parts[3].trim());
+                        Document document = new Document(type, duration);
+                        if (applicant != null) {
+                            applicant.addDocument(document);
+                        }
+                        break;
 
-                        case "P":
-                            // P, applicantID, title, impactFactor
-                            if (parts.length < 4) {
-                                System.err.println("Skipping malformed 'P' line for applicant " + applicantId);
-                                break;
-                            }
-                            String title = parts[2];
-                            double impact = Double.parseDouble(parts[3].trim());
-                            applicant.addPublication(new Publication(title, impact));
+                    case "P":
+                        // P, applicantID, title, impactFactor
+                        if (parts.length < 4) {
+                            System.err.println("Skipping malformed 'P' line for applicant " + applicantId);
                             break;
+                        }
+                        String title = parts[2];
+                        double impact = Double.parseDouble(parts[3].trim());
+                        if (applicant != null) {
+                            applicant.addPublication(title, impact);
+                        }
+                        break;
 
-                        case "T":
-                            // T, applicantID, Y/N
-                            if (parts.length < 3) {
-                                System.err.println("Skipping malformed 'T' line for applicant " + applicantId);
-                                break;
-                            }
-                            boolean valid = parts[2].trim().equalsIgnoreCase("Y");
+                    case "T":
+                        // T, applicantID, Y/N
+                        if (parts.length < 3) {
+                            System.err.println("Skipping malformed 'T' line for applicant " + applicantId);
+                            break;
+                        }
+                        boolean valid = parts[2].trim().equalsIgnoreCase("Y");
+                        if (applicant != null) {
                             applicant.setTranscriptValid(valid);
+                        }
+                        break;
+
+                    case "I":
+                        // I, applicantID, familyIncome, dependents
+                        if (parts.length < 4) {
+                            System.err.println("Skipping malformed 'I' line for applicant " + applicantId);
                             break;
+                        }
+                        double familyIncome = Double.parseDouble(parts[2].trim());
+                        int dependents = Integer.parseInt(parts[3].trim());
+
+                        // If multiple 'I' lines exist for the same applicant,
+                        // keep the last one (overwrite previous)
+                        familyInfo = new FamilyInfo(familyIncome, dependents);
+                        break;
+
+                    default:
+                        System.err.println("Skipping unknown line type: " + prefix + " (Applicant: " + applicantId + ")");
+                }
+            } catch (Exception e) {
+                System.err.println(
+                        "Skipping malformed line for applicant " + applicantId + ": "
+                                + String.join(",", parts) + " | Error: " + e.getMessage()
+                );
+            }
+        }
+        return familyInfo;
+    }
+
+    /**
+     * Finds the conflicts inside the lines of one applicant:
+     * different 'A' lines, one document type with different durations,
+     * the same publication title twice, and rows without any 'A' line.
+     * Malformed rows are left to the main loop.
+     */
+    private void detectConflicts(String applicantId, List<String[]> linesForApplicant) {
+        String firstApplicantLine = null;
+        boolean hasApplicantLine = false;
+        int[] durations = null;          // first duration per document type, -1 = not seen
+        Set<String> titles = null;       // created on the first publication
 
-                        case "I":
-                            // I, applicantID, familyIncome, dependents
-                            if (parts.length < 4) {
-                                System.err.println("Skipping malformed 'I' line for applicant " + applicantId);
-                                break;
-                            }
-                            double familyIncome = Double.parseDouble(parts[2].trim());
-                            int dependents = Integer.parseInt(parts[3].trim());
-                            FamilyInfo info = new FamilyInfo(familyIncome, dependents);
-
-                            // If multiple 'I' lines exist for the same applicant,
-                            // keep the last one (overwrite previous)
-                            int existingIndex = familyInfoApplicantIds.indexOf(applicantId);
-                            if (existingIndex == -1) {
-                                familyInfoApplicantIds.add(applicantId);
-                                familyInfoList.add(info);
-                            } else {
-                                familyInfoList.set(existingIndex, info);
-                            }
+        for (String[] parts : linesForApplicant) {
+            String prefix = parts[0].trim();
+            try {
+                switch (prefix) {
+                    case "A": {
+                        String fields = applicantFields(parts);
+                        if (!hasApplicantLine) {
+                            hasApplicantLine = true;
+                            firstApplicantLine = fields;
+                        } else if (!fields.equals(firstApplicantLine)) {
+                            conflictReport.add(ConflictType.CONFLICTING_APPLICANT_LINES, applicantId,
+                                    "kept '" + firstApplicantLine + "', ignored '" + fields + "'");
+                        }
+                        break;
+                    }
+                    case "D": {
+                        if (parts.length < 4) {
+                            break;
+                        }
+                        DocumentType type = DocumentType.fromString(parts[2].trim());
+                        int duration = Integer.parseInt(parts[3].trim());
+                        if (durations == null) {
+                            durations = new int[DOCUMENT_TYPES.length];
+                            Arrays.fill(durations, -1);
+                        }
+                        int seen = durations[type.ordinal()];
+                        if (seen == -1) {
+                            durations[type.ordinal()] = duration;
+                        } else if (seen != duration) {
+                            conflictReport.add(ConflictType.DOCUMENT_DURATION_CONFLICT, applicantId,
+                                    type + ": " + seen + " and " + duration + " months");
+                        }
+                        break;
+                    }
+                    case "P": {
+                        if (parts.length < 4) {
                             break;
+                        }
+                        if (titles == null) {
+                            titles = new HashSet<>();
+                        }
+                        if (!titles.add(parts[2].trim())) {
+                            conflictReport.add(ConflictType.DUPLICATE_PUBLICATION, applicantId, parts[2].trim());
+                        }
+                        break;
+                    }
+                    default:
+                        break;
+                }
+            } catch (IllegalArgumentException e) {
+                // Malformed row, reported by the main loop
+            }
+        }
 
-                        default:
-                            System.err.println("Skipping unknown line type: " + prefix + " (Applicant: " + applicantId + ")");
+        if (!hasApplicantLine) {
+            conflictReport.add(ConflictType.ORPHAN_ROWS, applicantId, linesForApplicant.size() + " rows");
+        }
+    }
+
+    /**
+     * @return the fields of an 'A' line after the ID, trimmed and joined
+     */
+    private static String applicantFields(String[] parts) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 2; i < parts.length; i++) {
+            if (i > 2) {
+                sb.append(',');
+            }
+            sb.append(parts[i].trim());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Runs the general checks directly on the raw rows of one applicant.
+     * Rows are read with the same rules as the main loop: malformed 'D' and
+     * 'T' rows are ignored and the last 'T' row wins.
+     *
+     * @return rejected result, or null if the applicant passes (or the ID prefix is unknown)
+     */
+    private EvaluationResult preScreen(String applicantId, String name, double gpa,
+                                       List<String[]> linesForApplicant) {
+        ScholarshipCategoryProvider category = categories.find(applicantId);
+        if (category == null) {
+            return null; // Let the normal path report the unknown prefix
+        }
+
+        boolean hasEnrollment = false;
+        boolean transcriptValid = false;
+
+        for (String[] parts : linesForApplicant) {
+            String prefix = parts[0].trim();
+            try {
+                if (prefix.equals("D") && parts.length >= 4) {
+                    DocumentType type = DocumentType.fromString(parts[2].trim());
+                    Integer.parseInt(parts[3].trim()); // Row is only used if the duration is valid
+                    if (type == DocumentType.ENR) {
+                        hasEnrollment = true;
                     }
-                } catch (Exception e) {
-                    System.err.println(
-                            "Skipping malformed line for applicant " + applicantId + ": "
-                                    + String.join(",", parts) + " | Error: " + e.getMessage()
-                    );
+                } else if (prefix.equals("T") && parts.length >= 3) {
+                    transcriptValid = parts[2].trim().equalsIgnoreCase("Y");
                 }
+            } catch (Exception e) {
+                // Malformed row, the main loop would skip it too
             }
+        }
 
-            // Add the fully constructed Applicant object to the main list
-            applicantsList.add(applicant);
+        boolean traced = DecisionTrace.ENABLED && DecisionTrace.begin(applicantId);
+        RejectionReason reason = Application.checkGeneralRules(hasEnrollment, transcriptValid, gpa);
+        if (reason == null) {
+            if (traced) {
+                DecisionTrace.cancel(); // Passed: the full evaluation is traced later
+            }
+            return null;
         }
+        EvaluationResult rejection = new EvaluationResult(applicantId, name, category.getLabel(), reason.getMessage());
+        return traced ? DecisionTrace.end(rejection) : rejection;
     }
 }
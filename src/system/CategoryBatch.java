@@ -0,0 +1,133 @@
+package system;
+
+import applications.ScholarshipCategoryProvider;
+
+import java.util.Arrays;
+
+/**
+ * The positions of one batch of applicants, grouped by category.
+ *
+ * Like BatchEvaluator, it uses a counting sort: one pass to count the
+ * positions of each category, one to place them. Every category then has
+ * one range of positions, in their original order. ScholarshipSystem
+ * times the work of each range on its own, so every creation and
+ * evaluation event covers exactly one category. Positions with an unknown
+ * ID prefix belong to no range.
+ *
+ * One object is reused for every batch of a pass.
+ */
+final class CategoryBatch {
+
+    private ScholarshipCategoryProvider[] categoryAt; // category of each position, null = unknown
+    private ScholarshipCategoryProvider[] categories; // distinct, in order of first appearance
+    private byte[] groupAt;
+    private int[] start;                              // range c is start[c] .. start[c + 1] - 1
+    private int[] positions;
+    private int size;
+    private int groups;
+
+    CategoryBatch() {
+        this.categoryAt = new ScholarshipCategoryProvider[0];
+        this.categories = new ScholarshipCategoryProvider[4];
+        this.groupAt = new byte[0];
+        this.start = new int[categories.length + 1];
+        this.positions = new int[0];
+    }
+
+    /**
+     * Starts a new batch with positions 0 to size - 1, all of them unknown.
+     */
+    void clear(int size) {
+        if (categoryAt.length < size) {
+            categoryAt = new ScholarshipCategoryProvider[size];
+            groupAt = new byte[size];
+            positions = new int[size];
+        }
+        Arrays.fill(categoryAt, 0, size, null);
+        Arrays.fill(categories, 0, groups, null);
+        this.size = size;
+        this.groups = 0;
+    }
+
+    /**
+     * @param category category of the position, or null if its prefix is unknown
+     */
+    void set(int position, ScholarshipCategoryProvider category) {
+        categoryAt[position] = category;
+    }
+
+    /**
+     * Sorts the positions into one range per category.
+     */
+    void group() {
+        // 1) Number the categories and count their positions
+        Arrays.fill(start, 0);
+        for (int i = 0; i < size; i++) {
+            ScholarshipCategoryProvider category = categoryAt[i];
+            if (category == null) {
+                continue;
+            }
+            int g = indexOf(category);
+            groupAt[i] = (byte) g;
+            start[g + 1]++;
+        }
+        for (int g = 1; g <= groups; g++) {
+            start[g] += start[g - 1];
+        }
+
+        // 2) Place the positions, keeping their order within a category
+        int[] next = Arrays.copyOf(start, groups);
+        for (int i = 0; i < size; i++) {
+            if (categoryAt[i] != null) {
+                positions[next[groupAt[i]]++] = i;
+            }
+        }
+    }
+
+    private int indexOf(ScholarshipCategoryProvider category) {
+        for (int g = 0; g < groups; g++) {
+            if (categories[g] == category) {
+                return g;
+            }
+        }
+        if (groups == categories.length) {
+            // At most 100 categories (prefixes 00 - 99), so a byte holds the group
+            categories = Arrays.copyOf(categories, groups * 2);
+            start = Arrays.copyOf(start, categories.length + 1);
+        }
+        categories[groups] = category;
+        return groups++;
+    }
+
+    /**
+     * @return number of categories in the batch
+     */
+    int groups() {
+        return groups;
+    }
+
+    ScholarshipCategoryProvider category(int group) {
+        return categories[group];
+    }
+
+    /**
+     * @return first index of the range of the group, for position(index)
+     */
+    int from(int group) {
+        return start[group];
+    }
+
+    /**
+     * @return index after the range of the group
+     */
+    int to(int group) {
+        return start[group + 1];
+    }
+
+    /**
+     * @return batch position at an index of a range
+     */
+    int position(int index) {
+        return positions[index];
+    }
+}
@@ -0,0 +1,123 @@
+package system;
+
+import applications.BuiltInCategoryProvider;
+import applications.ScholarshipCategoryProvider;
+
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Finds the scholarship category of an applicant from the first two
+ * digits of the ID. Providers are kept in an array indexed by the prefix,
+ * so a lookup is constant time no matter how many categories exist.
+ */
+public class CategoryRegistry {
+
+    private static final int PREFIX_COUNT = 100; // 00 - 99
+
+    private final ScholarshipCategoryProvider[] providers;
+
+    /**
+     * Creates an empty registry.
+     */
+    public CategoryRegistry() {
+        this.providers = new ScholarshipCategoryProvider[PREFIX_COUNT];
+    }
+
+    /**
+     * Creates a registry with the built-in categories and
+     * every plug-in found by ServiceLoader.
+     * The class path is scanned once; later calls copy the providers of
+     * the first scan, so each caller still gets its own registry.
+     */
+    public static CategoryRegistry withDefaults() {
+        CategoryRegistry registry = new CategoryRegistry();
+        System.arraycopy(Defaults.PROVIDERS, 0, registry.providers, 0, PREFIX_COUNT);
+        return registry;
+    }
+
+    /**
+     * Holder of the default providers, filled on first use (class init is thread-safe).
+     */
+    private static final class Defaults {
+        static final ScholarshipCategoryProvider[] PROVIDERS = scan();
+
+        private static ScholarshipCategoryProvider[] scan() {
+            CategoryRegistry registry = new CategoryRegistry();
+            registry.register(BuiltInCategoryProvider.MERIT);
+            registry.register(BuiltInCategoryProvider.NEED);
+            registry.register(BuiltInCategoryProvider.RESEARCH);
+            registry.loadPlugins();
+            return registry.providers;
+        }
+    }
+
+    /**
+     * Adds one category.
+     *
+     * @throws IllegalArgumentException if the prefix is out of range or already used
+     */
+    public void register(ScholarshipCategoryProvider provider) {
+        if (provider == null) {
+            throw new IllegalArgumentException("Provider cannot be null");
+        }
+        int prefix = provider.getPrefix();
+        if (prefix < 0 || prefix >= PREFIX_COUNT) {
+            throw new IllegalArgumentException("Prefix must be between 00 and 99: " + prefix);
+        }
+        if (providers[prefix] != null) {
+            throw new IllegalArgumentException("Prefix " + prefix + " is already used by "
+                    + providers[prefix].getLabel());
+        }
+        providers[prefix] = provider;
+    }
+
+    /**
+     * Registers every ScholarshipCategoryProvider found on the class path.
+     * A broken plug-in is reported and skipped.
+     */
+    public void loadPlugins() {
+        try {
+            for (ScholarshipCategoryProvider provider : ServiceLoader.load(ScholarshipCategoryProvider.class)) {
+                try {
+                    register(provider);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Skipping category plug-in " + provider.getClass().getName() + ": " + e.getMessage());
+                }
+            }
+        } catch (ServiceConfigurationError e) {
+            System.err.println("Error loading category plug-ins: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Finds a category by its label, ignoring case.
+     *
+     * @return provider, or null if no category has the label
+     */
+    public ScholarshipCategoryProvider findByLabel(String label) {
+        for (ScholarshipCategoryProvider provider : providers) {
+            if (provider != null && provider.getLabel().equalsIgnoreCase(label)) {
+                return provider;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the category for an applicant ID.
+     *
+     * @return provider, or null if the prefix is unknown
+     */
+    public ScholarshipCategoryProvider find(String applicantId) {
+        if (applicantId == null || applicantId.length() < 2) {
+            return null;
+        }
+        int d1 = applicantId.charAt(0) - '0';
+        int d2 = applicantId.charAt(1) - '0';
+        if (d1 < 0 || d1 > 9 || d2 < 0 || d2 > 9) {
+            return null;
+        }
+        return providers[d1 * 10 + d2];
+    }
+}
@@ -0,0 +1,64 @@
+package system;
+
+import enums.ConflictType;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the duplicate and conflicting records found while reading.
+ * The report is written as CSV: type,applicantId,detail
+ */
+public class ConflictReport {
+
+    private final List<Entry> entries;
+    private final int[] counts;
+
+    public ConflictReport() {
+        this.entries = new ArrayList<>();
+        this.counts = new int[ConflictType.values().length];
+    }
+
+    public synchronized void add(ConflictType type, String applicantId, String detail) {
+        entries.add(new Entry(type, applicantId, detail));
+        counts[type.ordinal()]++;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized int count(ConflictType type) {
+        return counts[type.ordinal()];
+    }
+
+    /**
+     * Writes every conflict as one CSV line, after a header line.
+     */
+    public synchronized void write(PrintStream out) {
+        out.println("type,applicantId,detail");
+        for (Entry e : entries) {
+            out.println(e.type.name() + "," + e.applicantId + "," + clean(e.detail));
+        }
+    }
+
+    /**
+     * Keeps the detail on one CSV field.
+     */
+    private static String clean(String detail) {
+        return detail.replace(',', ';').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private static final class Entry {
+        final ConflictType type;
+        final String applicantId;
+        final String detail;
+
+        Entry(ConflictType type, String applicantId, String detail) {
+            this.type = type;
+            this.applicantId = applicantId;
+            this.detail = detail == null ? "" : detail;
+        }
+    }
+}
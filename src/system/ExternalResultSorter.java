@@ -0,0 +1,268 @@
+package system;
+
+import model.EvaluationResult;
+import output.BinaryResultEncoder;
+import output.BinaryResultReader;
+import output.ResultOutput;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Sorts results by applicant ID when they do not all fit in the heap.
+ *
+ * Results are collected up to a run size, sorted and written as one run
+ * to a temp file in the binary result format. finish then merges the
+ * runs with a heap of run cursors (the same k-way merge as
+ * ShardCoordinator) and streams the results in ID order. At most one run
+ * and one record per run file are in memory. If everything fits in one
+ * run, nothing is written to disk.
+ *
+ * At most MAX_FAN_IN run files are open at a time. With more runs,
+ * groups of MAX_FAN_IN neighbouring runs are first merged into one
+ * bigger run each, until few enough are left for the last merge.
+ *
+ * A sorter is used for one set of results; close deletes the temp files.
+ */
+public class ExternalResultSorter implements Closeable {
+
+    /** Results per run when no size is given. */
+    public static final int DEFAULT_RUN_SIZE = 1 << 20;
+
+    /** Most run files that one merge opens at a time. */
+    public static final int MAX_FAN_IN = 128;
+
+    private static final Comparator<EvaluationResult> BY_APPLICANT_ID = new Comparator<EvaluationResult>() {
+        @Override
+        public int compare(EvaluationResult a, EvaluationResult b) {
+            return a.getApplicantId().compareTo(b.getApplicantId());
+        }
+    };
+
+    private final Path tempDir;
+    private final int runSize;
+    private final List<EvaluationResult> current;
+    private final List<Path> runs;
+
+    /**
+     * Writes the runs to the default temp directory.
+     */
+    public ExternalResultSorter() {
+        this(Path.of(System.getProperty("java.io.tmpdir")), DEFAULT_RUN_SIZE);
+    }
+
+    /**
+     * @param tempDir directory for the run files
+     * @param runSize results sorted in memory per run
+     */
+    public ExternalResultSorter(Path tempDir, int runSize) {
+        if (tempDir == null) {
+            throw new IllegalArgumentException("Temp directory cannot be null");
+        }
+        if (runSize < 1) {
+            throw new IllegalArgumentException("Run size must be positive: " + runSize);
+        }
+        this.tempDir = tempDir;
+        this.runSize = runSize;
+        this.current = new ArrayList<>(Math.min(runSize, 1 << 16));
+        this.runs = new ArrayList<>();
+    }
+
+    /**
+     * Adds one result, writing a run if the current one is full.
+     *
+     * @throws UncheckedIOException if the run cannot be written
+     */
+    public void add(EvaluationResult result) {
+        current.add(result);
+        if (current.size() >= runSize) {
+            try {
+                writeRun();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * @return number of run files written so far
+     */
+    public int getRunCount() {
+        return runs.size();
+    }
+
+    /**
+     * Passes all results to the output in applicant ID order.
+     *
+     * @return number of results
+     */
+    public int finish(Consumer<EvaluationResult> output) throws IOException {
+        if (runs.isEmpty()) {
+            current.sort(BY_APPLICANT_ID);
+            for (EvaluationResult r : current) {
+                output.accept(r);
+            }
+            int count = current.size();
+            current.clear();
+            return count;
+        }
+
+        if (!current.isEmpty()) {
+            writeRun();
+        }
+        while (runs.size() > MAX_FAN_IN) {
+            mergePass();
+        }
+        return merge(runs, output);
+    }
+
+    /**
+     * Sorts the current results and writes them as one run file.
+     * The sort is stable, so equal IDs keep the order they were added in.
+     */
+    private void writeRun() throws IOException {
+        current.sort(BY_APPLICANT_ID);
+        Path run = Files.createTempFile(tempDir, "results-run-", ".bin");
+        runs.add(run);
+
+        BinaryResultEncoder encoder = new BinaryResultEncoder();
+        try (ResultOutput out = openRun(run)) {
+            encoder.writeHeader(out);
+            for (EvaluationResult r : current) {
+                encoder.write(r, out);
+            }
+        }
+        current.clear();
+    }
+
+    /**
+     * Merges every group of MAX_FAN_IN neighbouring runs into one new run.
+     * The merged run takes the place of its group, so the order of the
+     * runs (and with it the order of equal IDs) stays the same.
+     */
+    private void mergePass() throws IOException {
+        List<Path> merged = new ArrayList<>(runs.size() / MAX_FAN_IN + 1);
+        for (int from = 0; from < runs.size(); from += MAX_FAN_IN) {
+            List<Path> group = runs.subList(from, Math.min(runs.size(), from + MAX_FAN_IN));
+            if (group.size() == 1) {
+                merged.add(group.get(0));
+                continue;
+            }
+
+            Path run = Files.createTempFile(tempDir, "results-run-", ".bin");
+            merged.add(run);
+            BinaryResultEncoder encoder = new BinaryResultEncoder();
+            try (ResultOutput out = openRun(run)) {
+                encoder.writeHeader(out);
+                merge(group, r -> {
+                    try {
+                        encoder.write(r, out);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (IOException | UncheckedIOException e) {
+                Files.deleteIfExists(run); // not in runs yet, so close would miss it
+                throw e instanceof UncheckedIOException ? ((UncheckedIOException) e).getCause() : (IOException) e;
+            }
+            for (Path p : group) {
+                Files.deleteIfExists(p);
+            }
+        }
+        runs.clear();
+        runs.addAll(merged);
+    }
+
+    private static ResultOutput openRun(Path run) throws IOException {
+        return new ResultOutput(FileChannel.open(run, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING), true);
+    }
+
+    /**
+     * K-way merge of run files.
+     */
+    private static int merge(List<Path> files, Consumer<EvaluationResult> output) throws IOException {
+        List<BinaryResultReader> readers = new ArrayList<>(files.size());
+        try {
+            PriorityQueue<RunCursor> heads = new PriorityQueue<>(files.size());
+            for (int i = 0; i < files.size(); i++) {
+                BinaryResultReader reader = new BinaryResultReader(
+                        Channels.newInputStream(FileChannel.open(files.get(i), StandardOpenOption.READ)));
+                readers.add(reader);
+                EvaluationResult first = reader.next();
+                if (first != null) {
+                    heads.add(new RunCursor(reader, first, i));
+                }
+            }
+
+            int count = 0;
+            while (!heads.isEmpty()) {
+                RunCursor head = heads.poll();
+                output.accept(head.current);
+                count++;
+                head.current = head.reader.next();
+                if (head.current != null) {
+                    heads.add(head);
+                }
+            }
+            return count;
+        } finally {
+            for (BinaryResultReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Deletes the run files.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException error = null;
+        for (Path run : runs) {
+            try {
+                Files.deleteIfExists(run);
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        runs.clear();
+        current.clear();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Current (smallest unread) result of one run.
+     * Ties go to the earlier run, so the merge is stable too.
+     */
+    private static final class RunCursor implements Comparable<RunCursor> {
+        final BinaryResultReader reader;
+        final int run;
+        EvaluationResult current;
+
+        RunCursor(BinaryResultReader reader, EvaluationResult current, int run) {
+            this.reader = reader;
+            this.current = current;
+            this.run = run;
+        }
+
+        @Override
+        public int compareTo(RunCursor other) {
+            int c = current.getApplicantId().compareTo(other.current.getApplicantId());
+            return c != 0 ? c : Integer.compare(run, other.run);
+        }
+    }
+}
@@ -0,0 +1,547 @@
+package system;
+
+import monitoring.FileReadEvent;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * Checkpoints for reading one very large CSV file, so that a load that
+ * crashed can go on where it stopped instead of starting at byte zero.
+ *
+ * While the file is read, the rows that were added since the last
+ * checkpoint are written every intervalBytes of input as one segment,
+ * together with the input offset after them. Segments are written by a
+ * background thread and only appended, so the reader never waits for a
+ * full snapshot. On the next run, the complete segments are read back
+ * (a segment cut by a crash is dropped, its CRC does not match) and the
+ * file is read on from the offset of the last one. The rows are the same
+ * as in one uninterrupted read, so the applicants built from them are too.
+ *
+ * The checkpoint belongs to one source file: its path and a hash of its
+ * first bytes are stored in the header. Every segment also stores the
+ * size and modification time of the source when it was written, and a
+ * hash of the WINDOW_BYTES input bytes just before its offset. The
+ * checkpoint is started again if the header does not match, if the
+ * source got smaller or was rewritten with the same size, or if the
+ * bytes before the resume offset are not the same any more (this also
+ * catches a source that ends before the offset). Rows appended to the
+ * source after a complete load are picked up by the next run. For gzip
+ * files the offset counts uncompressed bytes, so a resume still has to
+ * decompress up to it.
+ *
+ * File layout (big-endian):
+ *   header:  long MAGIC, int VERSION, UTF source path, long hash of the first HASH_BYTES bytes
+ *   segment: int SEGMENT_MARK, long input offset after the rows, long source size,
+ *            long source modification time (ms), int window length, long window hash,
+ *            int row count, int payload length, payload, long CRC32 of the payload
+ *   payload: per row a short field count, then per field a short length and UTF-8 bytes
+ */
+public class IngestCheckpoint {
+
+    /** Default distance between two checkpoints, in input bytes. */
+    public static final long DEFAULT_INTERVAL_BYTES = 64L * 1024 * 1024;
+
+    private static final long MAGIC = 0x5343484350543031L; // "SCHCPT01"
+    private static final int VERSION = 2;
+    private static final int SEGMENT_MARK = 0x53454721;    // "SEG!"
+    private static final int HASH_BYTES = 64 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int WINDOW_BYTES = 4 * 1024;       // bytes before an offset that are hashed
+    private static final int SEGMENT_HEADER = 4 + 8 + 8 + 8 + 4 + 8 + 4 + 4;
+
+    private final Path checkpointFile;
+    private final long intervalBytes;
+    private int resumedRows;          // rows read from the checkpoint in the last load
+    private long resumedOffset;       // input offset the last load went on from
+
+    // Source state stored with the last valid segment, set by resume
+    private long savedSourceSize;
+    private long savedSourceModified;
+    private int savedWindowLength;
+    private long savedWindowHash;
+
+    public IngestCheckpoint(Path checkpointFile) {
+        this(checkpointFile, DEFAULT_INTERVAL_BYTES);
+    }
+
+    /**
+     * @param intervalBytes input bytes between two checkpoints
+     */
+    public IngestCheckpoint(Path checkpointFile, long intervalBytes) {
+        if (checkpointFile == null) {
+            throw new IllegalArgumentException("Checkpoint file cannot be null");
+        }
+        if (intervalBytes < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        this.checkpointFile = checkpointFile;
+        this.intervalBytes = intervalBytes;
+    }
+
+    /**
+     * @return number of rows that the last load took from the checkpoint
+     */
+    public int getResumedRows() {
+        return resumedRows;
+    }
+
+    /**
+     * @return input offset that the last load went on from (0 = from the start)
+     */
+    public long getResumedOffset() {
+        return resumedOffset;
+    }
+
+    /**
+     * Reads all rows of the source, starting after the last checkpoint if there is a valid one.
+     * Rows are split like CSVReader.splitRow.
+     *
+     * @param expectedRows size hint for the row list
+     */
+    List<String[]> readLines(Path source, int expectedRows) throws IOException {
+        List<String[]> rows = new ArrayList<>(expectedRows);
+        long sourceHash = hashStart(source);
+        long offset = resume(source, sourceHash, rows);
+
+        // Go to the resume offset, and check that the source still has the bytes before it
+        InputStream in = CSVReader.open(source);
+        byte[] window = new byte[0];
+        try {
+            if (offset > 0) {
+                String change = sourceChange(source, in, offset);
+                if (change == null) {
+                    window = in.readNBytes(savedWindowLength);
+                    if (window.length != savedWindowLength || hash(window, window.length) != savedWindowHash) {
+                        change = "its bytes before offset " + offset + " changed";
+                    }
+                }
+                if (change != null) {
+                    System.err.println("Source " + source + " changed since checkpoint " + checkpointFile
+                            + " (" + change + "), starting again");
+                    in.close();
+                    in = CSVReader.open(source);
+                    rows.clear();
+                    offset = 0;
+                    window = new byte[0];
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+
+        resumedRows = rows.size();
+        resumedOffset = offset;
+        if (offset > 0) {
+            System.err.println("Resuming " + source + " at byte " + offset + " (" + rows.size()
+                    + " rows from checkpoint " + checkpointFile + ")");
+        }
+
+        ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread t = new Thread(runnable, "checkpoint-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        List<Future<?>> writes = new ArrayList<>();
+        try (FileChannel out = openForAppend(source, sourceHash, offset > 0);
+             InputStream input = in) {
+
+            LineSplitter lines = new LineSplitter(rows, offset, window);
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            int savedRows = rows.size();
+            long savedOffset = offset;
+            long nextCheckpoint = offset + intervalBytes;
+            FileReadEvent chunk = FileReadEvent.start(source);
+            int read;
+            while ((read = input.read(buffer)) > 0) {
+                lines.add(buffer, read);
+                if (lines.lineEndOffset >= nextCheckpoint) {
+                    // Rows are not changed after they are added, so the copy can be written later
+                    String[][] segment = rows.subList(savedRows, rows.size()).toArray(new String[0][]);
+                    long segmentOffset = lines.lineEndOffset;
+                    SourceState state = lines.state(source);
+                    writes.add(writer.submit(() -> {
+                        writeSegment(out, segment, segmentOffset, state);
+                        return null;
+                    }));
+                    chunk.finish(segmentOffset - savedOffset, rows.size() - savedRows);
+                    chunk = FileReadEvent.start(source);
+                    savedRows = rows.size();
+                    savedOffset = segmentOffset;
+                    nextCheckpoint = segmentOffset + intervalBytes;
+                }
+            }
+
+            // Last segment, so that a complete load does not have to read the source again.
+            // A last line without a line end is not saved: more text may still be added to it.
+            String[][] segment = rows.subList(savedRows, rows.size()).toArray(new String[0][]);
+            long segmentOffset = lines.lineEndOffset;
+            if (segmentOffset > savedOffset) {
+                SourceState state = lines.state(source);
+                writes.add(writer.submit(() -> {
+                    writeSegment(out, segment, segmentOffset, state);
+                    return null;
+                }));
+            }
+            lines.finish();
+            chunk.finish(lines.lineEndOffset - savedOffset, rows.size() - savedRows);
+            waitFor(writes);
+        } finally {
+            writer.shutdown();
+        }
+        return rows;
+    }
+
+    /**
+     * Reads the valid segments of the checkpoint into rows.
+     *
+     * @return input offset after the last valid segment, or 0 if there is no usable checkpoint
+     */
+    private long resume(Path source, long sourceHash, List<String[]> rows) throws IOException {
+        if (!Files.exists(checkpointFile)) {
+            return 0;
+        }
+
+        long offset = 0;
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(checkpointFile), READ_BUFFER_SIZE))) {
+            if (in.readLong() != MAGIC || in.readInt() != VERSION
+                    || !in.readUTF().equals(source.toAbsolutePath().toString())
+                    || in.readLong() != sourceHash) {
+                System.err.println("Checkpoint " + checkpointFile + " is for another file, starting again");
+                return 0;
+            }
+            validLength = 8 + 4 + 2 + utfLength(source.toAbsolutePath().toString()) + 8;
+
+            byte[] payload = new byte[0];
+            while (true) {
+                int mark;
+                try {
+                    mark = in.readInt();
+                } catch (EOFException e) {
+                    break; // End of the checkpoint
+                }
+                if (mark != SEGMENT_MARK) {
+                    break;
+                }
+                long segmentOffset = in.readLong();
+                long sourceSize = in.readLong();
+                long sourceModified = in.readLong();
+                int windowLength = in.readInt();
+                long windowHash = in.readLong();
+                int count = in.readInt();
+                int length = in.readInt();
+                if (length < 0 || count < 0 || windowLength < 0 || windowLength > WINDOW_BYTES) {
+                    break;
+                }
+                if (payload.length < length) {
+                    payload = new byte[length];
+                }
+                in.readFully(payload, 0, length);
+                long crc = in.readLong();
+                if (crc(payload, length) != crc) {
+                    break; // Cut by a crash
+                }
+                decodeRows(payload, length, count, rows);
+                offset = segmentOffset;
+                savedSourceSize = sourceSize;
+                savedSourceModified = sourceModified;
+                savedWindowLength = windowLength;
+                savedWindowHash = windowHash;
+                validLength += SEGMENT_HEADER + length + 8;
+            }
+        } catch (EOFException e) {
+            // Last segment was cut by a crash: keep the segments before it
+        }
+
+        // Drop a cut segment so that new segments follow the last valid one
+        try (FileChannel channel = FileChannel.open(checkpointFile, StandardOpenOption.WRITE)) {
+            channel.truncate(validLength);
+        }
+        return offset;
+    }
+
+    /**
+     * Compares the source with its state at the last valid segment and
+     * skips the input to the start of the hashed window before the offset.
+     * Sources are only expected to grow: a smaller source, or one that was
+     * rewritten with the same size, is not the one the checkpoint was made from.
+     *
+     * @return what changed, or null if the checkpoint may still fit the source
+     */
+    private String sourceChange(Path source, InputStream in, long offset) throws IOException {
+        long size = Files.size(source);
+        long modified = Files.getLastModifiedTime(source).toMillis();
+        if (size < savedSourceSize) {
+            return "it is smaller";
+        }
+        if (size == savedSourceSize && modified != savedSourceModified) {
+            return "it was rewritten";
+        }
+        long skip = offset - savedWindowLength;
+        try {
+            in.skipNBytes(skip);
+        } catch (EOFException e) {
+            return "it ends before offset " + offset;
+        }
+        return null;
+    }
+
+    private FileChannel openForAppend(Path source, long sourceHash, boolean resuming) throws IOException {
+        if (resuming) {
+            return FileChannel.open(checkpointFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+
+        FileChannel channel = FileChannel.open(checkpointFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(bytes);
+        header.writeLong(MAGIC);
+        header.writeInt(VERSION);
+        header.writeUTF(source.toAbsolutePath().toString());
+        header.writeLong(sourceHash);
+        header.flush();
+        writeFully(channel, ByteBuffer.wrap(bytes.toByteArray()));
+        return channel;
+    }
+
+    /**
+     * Appends one segment and forces it to disk. Runs on the writer thread.
+     */
+    private static void writeSegment(FileChannel out, String[][] rows, long offset, SourceState state)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(32, rows.length * 48));
+        DataOutputStream payload = new DataOutputStream(bytes);
+        for (String[] row : rows) {
+            payload.writeShort(row.length);
+            for (String field : row) {
+                byte[] utf8 = field.getBytes(StandardCharsets.UTF_8);
+                if (utf8.length > 0xFFFF) {
+                    throw new IOException("Field too long for a checkpoint: " + utf8.length + " bytes");
+                }
+                payload.writeShort(utf8.length);
+                payload.write(utf8);
+            }
+        }
+        payload.flush();
+        byte[] data = bytes.toByteArray();
+
+        ByteBuffer segment = ByteBuffer.allocate(SEGMENT_HEADER + data.length + 8);
+        segment.putInt(SEGMENT_MARK);
+        segment.putLong(offset);
+        segment.putLong(state.size);
+        segment.putLong(state.modified);
+        segment.putInt(state.windowLength);
+        segment.putLong(state.windowHash);
+        segment.putInt(rows.length);
+        segment.putInt(data.length);
+        segment.put(data);
+        segment.putLong(crc(data, data.length));
+        segment.flip();
+        writeFully(out, segment);
+        out.force(false);
+    }
+
+    private static void decodeRows(byte[] payload, int length, int count, List<String[]> rows) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(payload, 0, length);
+        for (int r = 0; r < count; r++) {
+            String[] row = new String[data.getShort() & 0xFFFF];
+            for (int f = 0; f < row.length; f++) {
+                int size = data.getShort() & 0xFFFF;
+                row[f] = new String(payload, data.position(), size, StandardCharsets.UTF_8);
+                data.position(data.position() + size);
+            }
+            rows.add(row);
+        }
+        if (data.hasRemaining()) {
+            throw new IOException("Damaged checkpoint segment (" + data.remaining() + " bytes left)");
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void waitFor(List<Future<?>> writes) throws IOException {
+        for (Future<?> w : writes) {
+            try {
+                w.get();
+            } catch (ExecutionException e) {
+                throw new IOException("Error writing checkpoint", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while writing checkpoint", e);
+            }
+        }
+    }
+
+    private static long crc(byte[] data, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        return crc.getValue();
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the first HASH_BYTES bytes of the source.
+     */
+    private static long hashStart(Path source) throws IOException {
+        byte[] start;
+        try (InputStream in = Files.newInputStream(source)) {
+            start = in.readNBytes(HASH_BYTES);
+        }
+        return hash(start, start.length);
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the first length bytes.
+     */
+    private static long hash(byte[] data, int length) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; i++) {
+            hash ^= data[i] & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Source size, modification time and window hash stored with one segment.
+     */
+    private static final class SourceState {
+        final long size;
+        final long modified;
+        final int windowLength;
+        final long windowHash;
+
+        SourceState(long size, long modified, int windowLength, long windowHash) {
+            this.size = size;
+            this.modified = modified;
+            this.windowLength = windowLength;
+            this.windowHash = windowHash;
+        }
+    }
+
+    private static int utfLength(String s) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeUTF(s);
+        return bytes.size() - 2;
+    }
+
+    /**
+     * Cuts bytes into lines like BufferedReader.readLine ('\n', '\r' or "\r\n"),
+     * and keeps the input offset of the last line end.
+     * The last input bytes are kept in a ring, so the window before a
+     * checkpoint offset can be hashed without reading the source again.
+     */
+    private static final class LineSplitter {
+        private static final Charset CHARSET = StandardCharsets.UTF_8; // Same as CSVReader
+
+        // A checkpoint offset is at most one read buffer behind the position
+        private static final int RECENT_BYTES = READ_BUFFER_SIZE + WINDOW_BYTES;
+
+        private final List<String[]> rows;
+        private final byte[] recent;  // input byte at offset p is at p % RECENT_BYTES
+        private final long recentStart; // input offset of the first byte in recent
+        private byte[] line;
+        private int lineLength;
+        private long position;       // input offset of the next byte
+        private long lineEndOffset;  // input offset after the last complete line
+        private boolean afterCarriageReturn;
+
+        /**
+         * @param before input bytes just before startOffset (the checked window of a resume)
+         */
+        LineSplitter(List<String[]> rows, long startOffset, byte[] before) {
+            this.rows = rows;
+            this.line = new byte[256];
+            this.recent = new byte[RECENT_BYTES];
+            this.recentStart = startOffset - before.length;
+            for (int i = 0; i < before.length; i++) {
+                recent[(int) ((recentStart + i) % RECENT_BYTES)] = before[i];
+            }
+            this.position = startOffset;
+            this.lineEndOffset = startOffset;
+        }
+
+        /**
+         * @return state of the source for a segment that ends at lineEndOffset
+         */
+        SourceState state(Path source) throws IOException {
+            long end = lineEndOffset;
+            int length = (int) Math.min(WINDOW_BYTES, Math.min(end - recentStart,
+                    RECENT_BYTES - (position - end)));
+            length = Math.max(0, length);
+            byte[] window = new byte[length];
+            for (int i = 0; i < length; i++) {
+                window[i] = recent[(int) ((end - length + i) % RECENT_BYTES)];
+            }
+            return new SourceState(Files.size(source), Files.getLastModifiedTime(source).toMillis(),
+                    length, hash(window, length));
+        }
+
+        void add(byte[] buffer, int length) {
+            for (int i = 0; i < length; i++) {
+                byte b = buffer[i];
+                recent[(int) (position % RECENT_BYTES)] = b;
+                position++;
+                if (b == '\n' && afterCarriageReturn) {
+                    afterCarriageReturn = false;
+                    lineEndOffset = position;
+                    continue; // Second half of "\r\n"
+                }
+                afterCarriageReturn = false;
+                if (b == '\n' || b == '\r') {
+                    endLine();
+                    afterCarriageReturn = b == '\r';
+                    lineEndOffset = position;
+                } else {
+                    if (lineLength == line.length) {
+                        line = Arrays.copyOf(line, line.length * 2);
+                    }
+                    line[lineLength++] = b;
+                }
+            }
+        }
+
+        /**
+         * Ends the last line if the input does not end with a line end.
+         */
+        void finish() {
+            if (lineLength > 0) {
+                endLine();
+            }
+        }
+
+        private void endLine() {
+            String[] parts = CSVReader.splitRow(new String(line, 0, lineLength, CHARSET));
+            if (parts != null) {
+                rows.add(parts);
+            }
+            lineLength = 0;
+        }
+    }
+}
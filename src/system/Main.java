@@ -1,9 +1,24 @@
 package system;
 
+import applications.PolicyThresholds;
 import model.EvaluationResult;
+import output.BinaryResultReader;
+import output.ResultEncoder;
+import output.ResultFormat;
+import output.ResultOutput;
 
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.function.Consumer;
 
 /**
  * Main class to run the Scholarship Evaluation System.
@@ -14,16 +29,471 @@ public class Main {
         Locale.setDefault(Locale.US);
 
         String filePath = "Files/ScholarshipApplications.csv";
+        boolean offHeap = false;
+        boolean pipeline = false;
+        int shards = 0;               // 0 = evaluate in this process
+        boolean watch = false;
+        String checkpointFile = null;
+        String auditFile = null;
+        String policyFile = null;
+        String budgetFile = null;
+        String conflictFile = null;
+        boolean fraudCheck = false;
+        ResultFormat format = null;   // null = the default readable output
+        String outputFile = null;     // null = standard output
+        String diffFile = null;       // saved binary results to compare with
+        int sortRunSize = 0;          // > 0 = sort the results on disk in runs of this size
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--off-heap":
+                    offHeap = true;
+                    break;
+                case "--pipeline":
+                    pipeline = true;
+                    break;
+                case "--checkpoint":
+                    checkpointFile = optionValue(args, ++i, arg);
+                    break;
+                case "--watch":
+                    watch = true;
+                    break;
+                case "--shards":
+                    try {
+                        shards = Integer.parseInt(optionValue(args, ++i, arg));
+                    } catch (NumberFormatException e) {
+                        System.err.println("Invalid number of shards: " + args[i]);
+                        System.exit(1);
+                    }
+                    break;
+                case "--audit":
+                    auditFile = optionValue(args, ++i, arg);
+                    break;
+                case "--simulate":
+                    policyFile = optionValue(args, ++i, arg);
+                    break;
+                case "--budget":
+                    budgetFile = optionValue(args, ++i, arg);
+                    break;
+                case "--conflicts":
+                    conflictFile = optionValue(args, ++i, arg);
+                    break;
+                case "--fraud-check":
+                    fraudCheck = true;
+                    break;
+                case "--format":
+                    try {
+                        format = ResultFormat.fromString(optionValue(args, ++i, arg));
+                    } catch (IllegalArgumentException e) {
+                        System.err.println(e.getMessage());
+                        System.exit(1);
+                    }
+                    break;
+                case "--output":
+                    outputFile = optionValue(args, ++i, arg);
+                    break;
+                case "--diff":
+                    diffFile = optionValue(args, ++i, arg);
+                    break;
+                case "--sort-run":
+                    try {
+                        sortRunSize = Integer.parseInt(optionValue(args, ++i, arg));
+                    } catch (NumberFormatException e) {
+                        System.err.println("Invalid sort run size: " + args[i]);
+                        System.exit(1);
+                    }
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        System.err.println("Unknown option: " + arg);
+                    } else {
+                        filePath = arg; // CSV file, directory of shards, or glob
+                    }
+            }
+        }
+
+        if (outputFile != null && format == null) {
+            format = ResultFormat.TEXT;
+        }
+
+        // These modes do not go through ScholarshipSystem, so nothing would be logged
+        if (auditFile != null && (pipeline || shards > 0 || watch || policyFile != null)) {
+            System.err.println("--audit cannot be used with --pipeline, --shards, --watch or --simulate");
+            System.exit(1);
+        }
+
+        if (pipeline) {
+            runPipeline(filePath, format, outputFile);
+            return;
+        }
+
+        if (shards > 0) {
+            runSharded(filePath, shards, format, outputFile);
+            return;
+        }
+
+        if (watch) {
+            runWatch(filePath, format, outputFile);
+            return;
+        }
 
         ScholarshipSystem system = new ScholarshipSystem();
+        system.setPreScreening(true);
+        system.setOffHeap(offHeap);
+
+        AuditLog auditLog = null;
+        if (auditFile != null) {
+            try {
+                auditLog = new AuditLog(Paths.get(auditFile));
+            } catch (IOException e) {
+                System.err.println("Cannot create audit log " + auditFile + ": " + e.getMessage());
+                System.exit(1);
+            }
+            system.setAuditLog(auditLog);
+        }
+
+        ConflictReport conflicts = null;
+        if (conflictFile != null) {
+            conflicts = new ConflictReport();
+            system.setConflictReport(conflicts);
+        }
+
+        if (checkpointFile != null) {
+            system.setCheckpoint(new IngestCheckpoint(Paths.get(checkpointFile)));
+        }
+
+        ExternalResultSorter sorter = null;
+        if (sortRunSize > 0) {
+            if (diffFile != null) {
+                System.err.println("--diff cannot be used with --sort-run");
+                System.exit(1);
+            }
+            sorter = new ExternalResultSorter(Paths.get(System.getProperty("java.io.tmpdir")), sortRunSize);
+            system.setExternalSort(sorter);
+        }
+
+        NameMatchIndex nameIndex = null;
+        if (fraudCheck) {
+            nameIndex = new NameMatchIndex();
+            system.setNameIndex(nameIndex);
+        }
 
         system.loadData(filePath);
-        system.createApplications();
-        system.evaluateApplications();
+
+        if (conflicts != null) {
+            writeConflicts(conflicts, conflictFile);
+        }
+
+        if (policyFile != null) {
+            runSimulation(system, policyFile);
+            return;
+        }
+
+        if (budgetFile != null) {
+            system.allocateAwards(readBudgets(budgetFile));
+        } else {
+            system.createAndEvaluateApplications(false); // applications are not needed after evaluation
+        }
+
+        if (auditLog != null) {
+            try {
+                auditLog.close();
+            } catch (IOException e) {
+                System.err.println("Error closing audit log " + auditFile + ": " + e.getMessage());
+            }
+        }
+
+        // Reports that follow the results must not end up inside encoded results
+        PrintStream reports = reportStream(format, outputFile);
+
+        if (sorter != null) {
+            writeExternallySorted(system, sorter, format, outputFile);
+            if (nameIndex != null) {
+                nameIndex.printSuspects(reports);
+            }
+            return;
+        }
 
         List<EvaluationResult> sortedResults = system.getSortedResults();
 
-        printResults(sortedResults);
+        if (format != null) {
+            writeResults(sortedResults, format, outputFile);
+        } else if (diffFile == null) {
+            printResults(sortedResults);
+        }
+
+        if (diffFile != null) {
+            printDiff(diffFile, sortedResults, reports);
+        }
+
+        if (nameIndex != null) {
+            nameIndex.printSuspects(reports);
+        }
+    }
+
+    /**
+     * @return standard error if the results are written to standard output
+     *         in a format other than text, otherwise standard output
+     */
+    private static PrintStream reportStream(ResultFormat format, String outputFile) {
+        if (format != null && format != ResultFormat.TEXT && outputFile == null) {
+            return System.err;
+        }
+        return System.out;
+    }
+
+    /**
+     * Returns the value that follows an option, or stops if it is missing.
+     */
+    private static String optionValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            System.err.println("Missing value for " + option);
+            System.exit(1);
+        }
+        return args[index];
+    }
+
+    /**
+     * Compares the current policy with the policies in the file and prints the report.
+     * Each non-empty line that does not start with '#' is one policy (see PolicyThresholds.parse).
+     */
+    private static void runSimulation(ScholarshipSystem system, String policyFile) {
+        List<PolicyThresholds> policies = new ArrayList<>();
+        policies.add(PolicyThresholds.DEFAULT);
+
+        try {
+            for (String line : Files.readAllLines(Paths.get(policyFile))) {
+                if (line.trim().isEmpty() || line.trim().startsWith("#")) {
+                    continue;
+                }
+                policies.add(PolicyThresholds.parse(line));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Cannot read policy file " + policyFile + ": " + e.getMessage());
+            System.exit(1);
+        }
+
+        PolicySimulator simulator = new PolicySimulator(CategoryRegistry.withDefaults(), policies);
+        simulator.setChangeOutput(System.out);
+        system.simulate(simulator);
+        simulator.printReport(System.out);
+    }
+
+    /**
+     * Prints how the results changed since the run saved in the file
+     * (written with --format binary).
+     *
+     * @param out stream for the changes and the summary
+     */
+    private static void printDiff(String diffFile, List<EvaluationResult> sortedResults, PrintStream out) {
+        try (BinaryResultReader previous = new BinaryResultReader(Files.newInputStream(Paths.get(diffFile)))) {
+            ResultDiff diff = new ResultDiff();
+            diff.compare(ResultDiff.of(previous), ResultDiff.of(sortedResults), out::println);
+            diff.printSummary(out);
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("Cannot compare with " + diffFile + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Writes the conflict report as CSV.
+     */
+    private static void writeConflicts(ConflictReport conflicts, String conflictFile) {
+        try (PrintStream out = new PrintStream(new FileOutputStream(conflictFile))) {
+            conflicts.write(out);
+        } catch (IOException e) {
+            System.err.println("Cannot write conflict report " + conflictFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the category budgets, one per line: category, budget, quota, fullCost, halfCost
+     */
+    private static AwardAllocator readBudgets(String budgetFile) {
+        AwardAllocator allocator = new AwardAllocator();
+        try {
+            for (String line : Files.readAllLines(Paths.get(budgetFile))) {
+                if (line.trim().isEmpty() || line.trim().startsWith("#")) {
+                    continue;
+                }
+                allocator.setBudget(line);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Cannot read budget file " + budgetFile + ": " + e.getMessage());
+            System.exit(1);
+        }
+        return allocator;
+    }
+
+    /**
+     * Loads, evaluates and prints at the same time (see PipelinedEvaluator).
+     *
+     * @param format     output format, or null for the default readable output
+     * @param outputFile output file, or null for standard output
+     */
+    private static void runPipeline(String filePath, ResultFormat format, String outputFile) {
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() - 2);
+        PipelinedEvaluator pipeline = new PipelinedEvaluator(CategoryRegistry.withDefaults(), workers, 1024);
+
+        if (format == null) {
+            int count = pipeline.run(filePath, true, Main::printResult);
+            if (count == 0) {
+                System.out.println("No applications were processed.");
+            }
+            return;
+        }
+
+        try (ResultOutput out = openOutput(outputFile)) {
+            ResultEncoder encoder = format.newEncoder();
+            encoder.writeHeader(out);
+            pipeline.run(filePath, true, encodeTo(encoder, out));
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error writing results: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Evaluates the input on worker processes and prints the merged results
+     * (see ShardCoordinator).
+     *
+     * @param format     output format, or null for the default readable output
+     * @param outputFile output file, or null for standard output
+     */
+    private static void runSharded(String filePath, int shards, ResultFormat format, String outputFile) {
+        ShardCoordinator coordinator = new ShardCoordinator(shards);
+
+        if (format == null) {
+            try {
+                int count = coordinator.run(filePath, Main::printResult);
+                if (count == 0) {
+                    System.out.println("No applications were processed.");
+                }
+            } catch (IOException e) {
+                System.err.println("Sharded evaluation failed: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+
+        try (ResultOutput out = openOutput(outputFile)) {
+            ResultEncoder encoder = format.newEncoder();
+            encoder.writeHeader(out);
+            coordinator.run(filePath, encodeTo(encoder, out));
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Sharded evaluation failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Follows the file and prints every new or changed result until stopped (see WatchMode).
+     *
+     * @param format     output format, or null for the default readable output
+     * @param outputFile output file, or null for standard output
+     */
+    private static void runWatch(String filePath, ResultFormat format, String outputFile) {
+        if (format == null) {
+            try {
+                new WatchMode(Paths.get(filePath), CategoryRegistry.withDefaults(), Main::printResult).watch();
+            } catch (IOException e) {
+                System.err.println("Watch failed: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+
+        try (ResultOutput out = openOutput(outputFile)) {
+            ResultEncoder encoder = format.newEncoder();
+            encoder.writeHeader(out);
+            Consumer<EvaluationResult> encode = encodeTo(encoder, out);
+            new WatchMode(Paths.get(filePath), CategoryRegistry.withDefaults(), res -> {
+                encode.accept(res);
+                try {
+                    out.flush(); // Changes are few, show them at once
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).watch();
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Watch failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Streams the results out of the external sorter and deletes its run files.
+     *
+     * @param format     output format, or null for the default readable output
+     * @param outputFile output file, or null for standard output
+     */
+    private static void writeExternallySorted(ScholarshipSystem system, ExternalResultSorter sorter,
+                                              ResultFormat format, String outputFile) {
+        boolean failed = false;
+        try {
+            if (format == null) {
+                if (system.writeSortedResults(Main::printResult) == 0) {
+                    System.out.println("No applications were processed.");
+                }
+            } else {
+                try (ResultOutput out = openOutput(outputFile)) {
+                    ResultEncoder encoder = format.newEncoder();
+                    encoder.writeHeader(out);
+                    system.writeSortedResults(encodeTo(encoder, out));
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error writing results: " + e.getMessage());
+            failed = true;
+        }
+
+        try {
+            sorter.close();
+        } catch (IOException e) {
+            System.err.println("Cannot delete sort run files: " + e.getMessage());
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Writes the results with the encoder of the format.
+     *
+     * @param outputFile output file, or null for standard output
+     */
+    private static void writeResults(List<EvaluationResult> results, ResultFormat format, String outputFile) {
+        try (ResultOutput out = openOutput(outputFile)) {
+            ResultEncoder encoder = format.newEncoder();
+            encoder.writeHeader(out);
+            Consumer<EvaluationResult> sink = encodeTo(encoder, out);
+            for (EvaluationResult res : results) {
+                sink.accept(res);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error writing results: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static ResultOutput openOutput(String outputFile) throws IOException {
+        if (outputFile == null) {
+            return ResultOutput.of(System.out);
+        }
+        return new ResultOutput(FileChannel.open(Paths.get(outputFile), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), true);
+    }
+
+    private static Consumer<EvaluationResult> encodeTo(ResultEncoder encoder, ResultOutput out) {
+        return res -> {
+            try {
+                encoder.write(res, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
     }
 
     private static void printResults(List<EvaluationResult> results) {
@@ -33,8 +503,12 @@ public class Main {
         }
 
         for (EvaluationResult res : results) {
-            System.out.println(res.getFormattedResult());
-            System.out.println();
+            printResult(res);
         }
     }
+
+    private static void printResult(EvaluationResult res) {
+        System.out.println(res.getFormattedResult());
+        System.out.println();
+    }
 }
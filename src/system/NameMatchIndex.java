@@ -0,0 +1,322 @@
+package system;
+
+import java.io.PrintStream;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Finds people who may have applied under more than one applicant ID
+ * (the same or an almost equal name, in the same or another category).
+ *
+ * Comparing every name with every other name is O(n^2), so names are
+ * first put into "blocks" by short keys, and only names that share a key
+ * are compared. Each name gets three keys:
+ * - the normalized name (lower case, no accents, words sorted),
+ * - Soundex of the last word + first letter of the first word,
+ * - Soundex of the first word + first letter of the last word.
+ * The phonetic keys catch spelling variants of one of the two words.
+ *
+ * Like the CSV grouping, blocks are found by sorting the (key, applicant)
+ * entries and taking runs of equal keys. The candidate pairs are then
+ * checked in parallel with an edit-distance similarity.
+ */
+public class NameMatchIndex {
+
+    /** Names at least this similar (0..1) are reported. */
+    public static final double DEFAULT_MIN_SIMILARITY = 0.85;
+
+    /** Blocks larger than this are too common to be useful and are skipped. */
+    private static final int MAX_BLOCK_SIZE = 200;
+
+    private final List<String> applicantIds;
+    private final List<String> names;
+    private final List<String> normalizedNames;
+    private final List<Entry> entries;
+    private final double minSimilarity;
+    private int skippedBlocks;
+
+    public NameMatchIndex() {
+        this(DEFAULT_MIN_SIMILARITY);
+    }
+
+    /**
+     * @param minSimilarity smallest similarity (0..1) of a reported pair
+     */
+    public NameMatchIndex(double minSimilarity) {
+        if (minSimilarity <= 0 || minSimilarity > 1) {
+            throw new IllegalArgumentException("Similarity must be in (0, 1]: " + minSimilarity);
+        }
+        this.applicantIds = new ArrayList<>();
+        this.names = new ArrayList<>();
+        this.normalizedNames = new ArrayList<>();
+        this.entries = new ArrayList<>();
+        this.minSimilarity = minSimilarity;
+        this.skippedBlocks = 0;
+    }
+
+    /**
+     * Adds one applicant to the index. Called by CSVReader while loading,
+     * after the 'A' line of the applicant is validated.
+     */
+    public synchronized void add(String applicantId, String name) {
+        if (applicantId == null || name == null) {
+            return;
+        }
+        String normalized = normalize(name);
+        if (normalized.isEmpty()) {
+            return;
+        }
+
+        int index = applicantIds.size();
+        applicantIds.add(applicantId);
+        names.add(name.trim());
+        normalizedNames.add(normalized);
+
+        String[] words = normalized.split(" ");
+        String first = words[0];
+        String last = words[words.length - 1];
+        entries.add(new Entry("N:" + normalized, index));
+        entries.add(new Entry("P:" + soundex(last) + first.charAt(0), index));
+        if (words.length > 1) {
+            entries.add(new Entry("Q:" + soundex(first) + last.charAt(0), index));
+        }
+    }
+
+    public synchronized int size() {
+        return applicantIds.size();
+    }
+
+    /**
+     * @return number of blocks skipped because they were larger than the limit
+     *         (valid after findSuspects)
+     */
+    public synchronized int getSkippedBlocks() {
+        return skippedBlocks;
+    }
+
+    /**
+     * Finds the suspected duplicates.
+     *
+     * @return suspects sorted by the first and then the second applicant ID
+     */
+    public synchronized List<Suspect> findSuspects() {
+        // 1) Sort the entries so that equal keys are next to each other
+        Entry[] sorted = entries.toArray(new Entry[0]);
+        Arrays.parallelSort(sorted, Comparator.comparing((Entry e) -> e.key).thenComparingInt(e -> e.index));
+
+        // 2) Every pair inside a block is a candidate, packed as (low index << 32 | high index)
+        long[] pairs = new long[16];
+        int pairCount = 0;
+        skippedBlocks = 0;
+        int start = 0;
+        while (start < sorted.length) {
+            int end = start + 1;
+            while (end < sorted.length && sorted[end].key.equals(sorted[start].key)) {
+                end++;
+            }
+            int blockSize = end - start;
+            if (blockSize > MAX_BLOCK_SIZE) {
+                skippedBlocks++;
+            } else {
+                for (int i = start; i < end; i++) {
+                    for (int j = i + 1; j < end; j++) {
+                        if (pairCount == pairs.length) {
+                            pairs = Arrays.copyOf(pairs, pairs.length * 2);
+                        }
+                        pairs[pairCount++] = ((long) sorted[i].index << 32) | sorted[j].index;
+                    }
+                }
+            }
+            start = end;
+        }
+
+        // 3) A pair can share more than one key: keep it once
+        Arrays.parallelSort(pairs, 0, pairCount);
+        int unique = 0;
+        for (int i = 0; i < pairCount; i++) {
+            if (unique == 0 || pairs[i] != pairs[unique - 1]) {
+                pairs[unique++] = pairs[i];
+            }
+        }
+
+        // 4) Check the candidates in parallel
+        final long[] candidates = pairs;
+        return IntStream.range(0, unique).parallel()
+                .mapToObj(i -> check((int) (candidates[i] >>> 32), (int) candidates[i]))
+                .filter(s -> s != null)
+                .sorted(Comparator.comparing((Suspect s) -> s.firstId).thenComparing(s -> s.secondId))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return the pair as a suspect, or null if the names are not similar enough
+     */
+    private Suspect check(int a, int b) {
+        String first = normalizedNames.get(a);
+        String second = normalizedNames.get(b);
+        double similarity = similarity(first, second);
+        if (similarity < minSimilarity) {
+            return null;
+        }
+
+        String idA = applicantIds.get(a);
+        String idB = applicantIds.get(b);
+        if (idA.compareTo(idB) > 0) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        return new Suspect(applicantIds.get(a), names.get(a), applicantIds.get(b), names.get(b), similarity);
+    }
+
+    /**
+     * Finds the suspects and writes them, one per line, after a title line.
+     * The title also tells how many blocks were too large to compare, so
+     * an empty list is not mistaken for a clean one.
+     */
+    public synchronized void printSuspects(PrintStream out) {
+        List<Suspect> suspects = findSuspects();
+        out.print("Suspected duplicate identities: " + suspects.size());
+        if (skippedBlocks > 0) {
+            out.print(" (" + skippedBlocks + " blocks of more than " + MAX_BLOCK_SIZE
+                    + " similar names were not compared)");
+        }
+        out.println();
+        for (Suspect s : suspects) {
+            out.println(s);
+        }
+    }
+
+    /**
+     * Lower case, accents removed, only letters kept, words sorted.
+     * " Lefevre,  Grace " becomes "grace lefevre".
+     */
+    static String normalize(String name) {
+        String plain = Normalizer.normalize(name, Normalizer.Form.NFD).toLowerCase();
+        StringBuilder sb = new StringBuilder(plain.length());
+        for (int i = 0; i < plain.length(); i++) {
+            char c = plain.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                sb.append(c);
+            } else if (Character.isWhitespace(c) || c == ',' || c == '-' || c == '.') {
+                sb.append(' ');
+            }
+        }
+        String[] words = sb.toString().trim().split("\\s+");
+        if (words.length == 1 && words[0].isEmpty()) {
+            return "";
+        }
+        Arrays.sort(words);
+        return String.join(" ", words);
+    }
+
+    /**
+     * American Soundex code of one lower-case word, for example "robert" -> "r163".
+     */
+    static String soundex(String word) {
+        // Codes for a..z
+        final String codes = "01230120022455012623010202";
+        char[] out = {word.charAt(0), '0', '0', '0'};
+        int n = 1;
+        char previous = codes.charAt(word.charAt(0) - 'a');
+        for (int i = 1; i < word.length() && n < 4; i++) {
+            char c = word.charAt(i);
+            char code = codes.charAt(c - 'a');
+            if (code != '0' && code != previous) {
+                out[n++] = code;
+            }
+            if (c != 'h' && c != 'w') {
+                previous = code;
+            }
+        }
+        return new String(out);
+    }
+
+    /**
+     * @return 1 - (edit distance / length of the longer text)
+     */
+    static double similarity(String a, String b) {
+        if (a.equals(b)) {
+            return 1.0;
+        }
+        int longer = Math.max(a.length(), b.length());
+        return 1.0 - (double) editDistance(a, b) / longer;
+    }
+
+    /**
+     * Levenshtein distance with two rows.
+     */
+    private static int editDistance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] t = previous;
+            previous = current;
+            current = t;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * One blocking key of one applicant.
+     */
+    private static final class Entry {
+        final String key;
+        final int index;
+
+        Entry(String key, int index) {
+            this.key = key;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Two applicant IDs that probably belong to the same person.
+     */
+    public static final class Suspect {
+        private final String firstId;
+        private final String firstName;
+        private final String secondId;
+        private final String secondName;
+        private final double similarity;
+
+        Suspect(String firstId, String firstName, String secondId, String secondName, double similarity) {
+            this.firstId = firstId;
+            this.firstName = firstName;
+            this.secondId = secondId;
+            this.secondName = secondName;
+            this.similarity = similarity;
+        }
+
+        public String getFirstId() {
+            return firstId;
+        }
+
+        public String getSecondId() {
+            return secondId;
+        }
+
+        public double getSimilarity() {
+            return similarity;
+        }
+
+        @Override
+        public String toString() {
+            return firstId + " (" + firstName + ") ~ " + secondId + " (" + secondName + ")"
+                    + String.format(" similarity %.2f", similarity);
+        }
+    }
+}
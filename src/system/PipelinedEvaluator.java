@@ -0,0 +1,248 @@
+package system;
+
+import applications.ScholarshipCategoryProvider;
+import model.Applicant;
+import model.EvaluationResult;
+import model.FamilyInfo;
+
+import java.io.IOException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Runs load, evaluation and output at the same time.
+ *
+ * - 1 loader thread reads the CSV and puts applicants into a bounded queue
+ *   (a file sorted by applicant ID is streamed, see CSVReader.readSortedData)
+ * - N worker threads evaluate them and put the results into a second bounded queue
+ * - the calling thread writes the results in applicant ID order
+ *
+ * The bounded queues block a stage that runs ahead of the next one,
+ * so memory stays bounded. Total time gets close to the slowest stage
+ * instead of the sum of all stages.
+ */
+public class PipelinedEvaluator {
+
+    private final CategoryRegistry categories;
+    private final CSVReader reader;
+    private final int workerCount;
+    private final int queueCapacity;
+
+    /**
+     * @param workerCount   number of evaluator threads
+     * @param queueCapacity size of each bounded queue
+     */
+    public PipelinedEvaluator(CategoryRegistry categories, int workerCount, int queueCapacity) {
+        if (categories == null) {
+            throw new IllegalArgumentException("Category registry cannot be null");
+        }
+        if (workerCount < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Worker count and queue capacity must be positive");
+        }
+        this.categories = categories;
+        this.reader = new CSVReader(categories);
+        this.workerCount = workerCount;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Reads, evaluates and writes every applicant of the file.
+     *
+     * @param filePath  Path to the CSV file.
+     * @param preScreen true to reject applicants that fail the general checks before building them
+     * @param output    Receives the results in applicant ID order.
+     * @return number of results written
+     * @throws IllegalStateException if a stage fails
+     */
+    public int run(String filePath, boolean preScreen, Consumer<EvaluationResult> output) {
+        BlockingQueue<Item> input = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Item> evaluated = new ArrayBlockingQueue<>(queueCapacity);
+        Failure failure = new Failure();
+
+        Thread loader = new Thread(() -> load(filePath, preScreen, input, failure), "pipeline-loader");
+        loader.setDaemon(true);
+        loader.start();
+
+        Thread[] workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(() -> evaluate(input, evaluated, failure), "pipeline-worker-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+
+        int written = write(evaluated, output, failure);
+
+        if (failure.error != null) {
+            throw new IllegalStateException("Pipeline failed", failure.error);
+        }
+        return written;
+    }
+
+    /**
+     * Loader stage: numbers each applicant in read order.
+     * A file that is sorted by applicant ID is streamed one applicant at a
+     * time (see CSVReader.readSortedData); any other input is read and
+     * grouped in memory first.
+     */
+    private void load(String filePath, boolean preScreen, BlockingQueue<Item> input, Failure failure) {
+        try {
+            CSVReader.ApplicantSink sink = new CSVReader.ApplicantSink() {
+                private long sequence = 0;
+
+                @Override
+                public void applicant(Applicant applicant, FamilyInfo familyInfo) {
+                    put(input, new Item(sequence++, applicant, familyInfo, null));
+                }
+
+                @Override
+                public void preScreened(EvaluationResult result) {
+                    put(input, new Item(sequence++, null, null, result));
+                }
+            };
+            if (!reader.readSortedData(filePath, preScreen, sink)) {
+                reader.readData(filePath, preScreen, sink);
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + filePath + " (" + e.getMessage() + ")");
+        } catch (RuntimeException | Error e) {
+            failure.set(e);
+        } finally {
+            // One end marker for each worker
+            for (int i = 0; i < workerCount; i++) {
+                put(input, Item.END);
+            }
+        }
+    }
+
+    /**
+     * Worker stage: builds and evaluates one applicant at a time.
+     * The end marker is sent even if the worker dies, so the writer does not wait forever.
+     */
+    private void evaluate(BlockingQueue<Item> input, BlockingQueue<Item> evaluated, Failure failure) {
+        try {
+            while (true) {
+                Item item = take(input);
+                if (item == Item.END) {
+                    break;
+                }
+
+                EvaluationResult result = item.result;
+                if (result == null && failure.error == null) {
+                    try {
+                        result = evaluate(item.applicant, item.familyInfo);
+                    } catch (RuntimeException e) {
+                        failure.set(e); // Keep taking items so the loader does not block
+                    }
+                }
+                // A null result still goes through, so the writer can move past its number
+                put(evaluated, new Item(item.sequence, null, null, result));
+            }
+        } catch (RuntimeException | Error e) {
+            failure.set(e);
+        } finally {
+            put(evaluated, Item.END);
+        }
+    }
+
+    private EvaluationResult evaluate(Applicant applicant, FamilyInfo familyInfo) {
+        ScholarshipCategoryProvider category = categories.find(applicant.getId());
+        if (category == null) {
+            System.err.println("Unknown applicant ID prefix: " + applicant.getId());
+            return null;
+        }
+        return category.evaluate(applicant, category.needsFamilyInfo() ? familyInfo : null);
+    }
+
+    /**
+     * Writer stage: puts the results back in read order (which is ID order).
+     */
+    private int write(BlockingQueue<Item> evaluated, Consumer<EvaluationResult> output, Failure failure) {
+        PriorityQueue<Item> pending = new PriorityQueue<>(); // results that arrived too early
+        long next = 0;
+        int finishedWorkers = 0;
+        int written = 0;
+
+        while (finishedWorkers < workerCount) {
+            Item item = take(evaluated);
+            if (item == Item.END) {
+                finishedWorkers++;
+                continue;
+            }
+            if (failure.error != null) {
+                continue; // Drain the queue so the workers can stop
+            }
+
+            pending.add(item);
+            while (!pending.isEmpty() && pending.peek().sequence == next) {
+                Item ready = pending.poll();
+                if (ready.result != null) {
+                    try {
+                        output.accept(ready.result);
+                        written++;
+                    } catch (RuntimeException e) {
+                        failure.set(e);
+                    }
+                }
+                next++;
+            }
+        }
+        return written;
+    }
+
+    private static void put(BlockingQueue<Item> queue, Item item) {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Pipeline interrupted", e);
+        }
+    }
+
+    private static Item take(BlockingQueue<Item> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Pipeline interrupted", e);
+        }
+    }
+
+    /**
+     * One unit of work that moves between the stages.
+     */
+    private static final class Item implements Comparable<Item> {
+        static final Item END = new Item(-1, null, null, null);
+
+        final long sequence;
+        final Applicant applicant;
+        final FamilyInfo familyInfo;
+        final EvaluationResult result;
+
+        Item(long sequence, Applicant applicant, FamilyInfo familyInfo, EvaluationResult result) {
+            this.sequence = sequence;
+            this.applicant = applicant;
+            this.familyInfo = familyInfo;
+            this.result = result;
+        }
+
+        @Override
+        public int compareTo(Item other) {
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * First error seen by any stage.
+     */
+    private static final class Failure {
+        volatile Throwable error;
+
+        synchronized void set(Throwable e) {
+            if (error == null) {
+                error = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package system;
+
+import applications.Application;
+import applications.PolicyThresholds;
+import applications.ScholarshipCategoryProvider;
+import enums.RejectionReason;
+import model.ApplicantView;
+import model.EvaluationResult;
+import model.FamilyInfo;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * What-if simulation: evaluates every applicant against many policy
+ * threshold sets in one pass over the data.
+ * The general checks do not depend on the thresholds, so they run once
+ * per applicant; only the category rules run once per policy.
+ * The first policy is the baseline that the others are compared with.
+ * Changes from the baseline are printed as they are found and only
+ * counted, so memory does not grow with the number of applicants.
+ */
+public class PolicySimulator {
+
+    private final CategoryRegistry categories;
+    private final PolicyThresholds[] policies;
+    private final int[] accepted;
+    private final int[] full;
+    private final int[] half;
+    private final int[] changed;   // results that differ from the baseline
+    private PrintStream changeOutput; // null = changes are only counted
+    private int changesPrinted;
+    private int applicants;
+
+    /**
+     * @param policies policies to compare, the first one is the baseline
+     */
+    public PolicySimulator(CategoryRegistry categories, List<PolicyThresholds> policies) {
+        if (categories == null) {
+            throw new IllegalArgumentException("Category registry cannot be null");
+        }
+        if (policies == null || policies.isEmpty()) {
+            throw new IllegalArgumentException("At least one policy is needed");
+        }
+        this.categories = categories;
+        this.policies = policies.toArray(new PolicyThresholds[0]);
+        this.accepted = new int[this.policies.length];
+        this.full = new int[this.policies.length];
+        this.half = new int[this.policies.length];
+        this.changed = new int[this.policies.length];
+        this.changeOutput = null;
+        this.changesPrinted = 0;
+        this.applicants = 0;
+    }
+
+    /**
+     * Sets the stream that every change from the baseline is printed to,
+     * as soon as it is found (null to only count the changes).
+     */
+    public void setChangeOutput(PrintStream changeOutput) {
+        this.changeOutput = changeOutput;
+    }
+
+    /**
+     * Evaluates one applicant under every policy.
+     *
+     * @param familyInfo family info of the applicant, or null
+     */
+    public void add(ApplicantView applicant, FamilyInfo familyInfo) {
+        ScholarshipCategoryProvider category = categories.find(applicant.getApplicantId());
+        if (category == null) {
+            System.err.println("Unknown applicant ID prefix: " + applicant.getApplicantId());
+            return;
+        }
+        applicants++;
+
+        // General checks once: a rejection here is the same for every policy
+        RejectionReason generalReason = Application.checkGeneralRules(applicant);
+        if (generalReason != null) {
+            return;
+        }
+
+        FamilyInfo info = category.needsFamilyInfo() ? familyInfo : null;
+        EvaluationResult baseline = category.applyCategoryRules(applicant, info, policies[0]);
+        count(0, baseline);
+
+        for (int p = 1; p < policies.length; p++) {
+            EvaluationResult result = category.applyCategoryRules(applicant, info, policies[p]);
+            count(p, result);
+            if (!sameDecision(baseline, policies[0], result, policies[p])) {
+                changed[p]++;
+                printChange(p, baseline, result);
+            }
+        }
+    }
+
+    /**
+     * Counts an applicant that was already rejected by the general checks
+     * (for example by pre-screening). It is rejected under every policy.
+     */
+    public void addRejected() {
+        applicants++;
+    }
+
+    private void printChange(int policy, EvaluationResult before, EvaluationResult after) {
+        if (changeOutput == null) {
+            return;
+        }
+        if (changesPrinted == 0) {
+            changeOutput.println("Changes from baseline '" + policies[0].getName() + "':");
+        }
+        changeOutput.println(after.getApplicantId() + " [" + policies[policy].getName() + "]: "
+                + describe(before) + " -> " + describe(after));
+        changesPrinted++;
+    }
+
+    private void count(int policy, EvaluationResult result) {
+        if (result.isAccepted()) {
+            accepted[policy]++;
+            if ("Full".equals(result.getType())) {
+                full[policy]++;
+            } else {
+                half[policy]++;
+            }
+        }
+    }
+
+    /**
+     * Compares the decisions, with rejections compared by reason and not
+     * by text: the Merit GPA message names the threshold of the policy,
+     * so "GPA below 3.0" and "GPA below 3.1" are the same decision.
+     */
+    private static boolean sameDecision(EvaluationResult a, PolicyThresholds policyA,
+                                        EvaluationResult b, PolicyThresholds policyB) {
+        if (a.isAccepted() != b.isAccepted()) {
+            return false;
+        }
+        if (a.isAccepted()) {
+            return Objects.equals(a.getType(), b.getType())
+                    && Objects.equals(a.getDuration(), b.getDuration());
+        }
+        RejectionReason reasonA = reasonOf(a, policyA);
+        RejectionReason reasonB = reasonOf(b, policyB);
+        if (reasonA == null && reasonB == null) {
+            // Reasons of other categories are only known by their text
+            return Objects.equals(a.getRejectionReason(), b.getRejectionReason());
+        }
+        return reasonA == reasonB;
+    }
+
+    /**
+     * @return reason of a rejection under the policy, or null if the text is not a known reason
+     */
+    private static RejectionReason reasonOf(EvaluationResult r, PolicyThresholds policy) {
+        if (r.getRejectionReason().equals(policy.getMeritRejectionMessage())) {
+            return RejectionReason.MERIT_GPA_TOO_LOW;
+        }
+        return RejectionReason.fromMessage(r.getRejectionReason());
+    }
+
+    /**
+     * Prints the acceptance counts of every policy, after the changes
+     * (if any were printed).
+     */
+    public void printReport(PrintStream out) {
+        if (changesPrinted > 0) {
+            out.println();
+        }
+        out.println("Policy simulation over " + applicants + " applicants");
+        out.println("policy,accepted,full,half,rejected,changedFromBaseline");
+        for (int p = 0; p < policies.length; p++) {
+            out.println(policies[p].getName() + "," + accepted[p] + "," + full[p] + "," + half[p] + ","
+                    + (applicants - accepted[p]) + "," + changed[p]);
+        }
+    }
+
+    private static String describe(EvaluationResult r) {
+        if (r.isAccepted()) {
+            return "Accepted " + r.getType() + " " + r.getDuration();
+        }
+        return "Rejected (" + r.getRejectionReason() + ")";
+    }
+
+    public int getAcceptedCount(int policy) {
+        return accepted[policy];
+    }
+
+    public int getChangedCount(int policy) {
+        return changed[policy];
+    }
+}
@@ -0,0 +1,241 @@
+package system;
+
+import model.EvaluationResult;
+import output.BinaryResultReader;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Compares the results of two runs, for example before and after a
+ * policy or data change.
+ *
+ * Both runs must be sorted by applicant ID (as getSortedResults and the
+ * saved result files are), so one linear merge-join finds every change.
+ * Only the current result of each run is held in memory; the changes go
+ * to a consumer as they are found.
+ *
+ * Two saved binary result files can also be compared from the command line:
+ * java system.ResultDiff old.bin new.bin
+ */
+public class ResultDiff {
+
+    /** Field flags of a Change. */
+    public static final int STATUS = 1;
+    public static final int TYPE = 2;
+    public static final int DURATION = 4;
+    public static final int REASON = 8;
+
+    /**
+     * A sorted stream of results, for example a list or a saved result file.
+     */
+    public interface Source {
+        /**
+         * @return next result, or null at the end
+         */
+        EvaluationResult next() throws IOException;
+    }
+
+    private int unchanged;
+    private int modified;       // in both runs, with another result
+    private int added;
+    private int removed;
+    private int statusChanged;
+    private int typeChanged;
+    private int durationChanged;
+    private int reasonChanged;
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: ResultDiff <old results> <new results>");
+            System.exit(1);
+        }
+        try (BinaryResultReader oldRun = new BinaryResultReader(Files.newInputStream(Paths.get(args[0])));
+             BinaryResultReader newRun = new BinaryResultReader(Files.newInputStream(Paths.get(args[1])))) {
+            ResultDiff diff = new ResultDiff();
+            diff.compare(of(oldRun), of(newRun), System.out::println);
+            diff.printSummary(System.out);
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("Cannot compare results: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return a source over results that are already in memory
+     */
+    public static Source of(Iterable<EvaluationResult> results) {
+        Iterator<EvaluationResult> it = results.iterator();
+        return () -> it.hasNext() ? it.next() : null;
+    }
+
+    /**
+     * @return a source over a saved binary result file
+     */
+    public static Source of(BinaryResultReader reader) {
+        return reader::next;
+    }
+
+    /**
+     * Compares the two runs and passes every difference to the consumer.
+     * The counts of an earlier compare are reset.
+     *
+     * @throws IllegalStateException if a run is not sorted by applicant ID
+     */
+    public void compare(Source oldRun, Source newRun, Consumer<Change> changes) throws IOException {
+        unchanged = modified = added = removed = 0;
+        statusChanged = typeChanged = durationChanged = reasonChanged = 0;
+
+        EvaluationResult a = next(oldRun, null, "first");
+        EvaluationResult b = next(newRun, null, "second");
+        while (a != null || b != null) {
+            int c = a == null ? 1 : b == null ? -1 : a.getApplicantId().compareTo(b.getApplicantId());
+            if (c < 0) {
+                removed++;
+                changes.accept(new Change(a, null, 0));
+                a = next(oldRun, a, "first");
+            } else if (c > 0) {
+                added++;
+                changes.accept(new Change(null, b, 0));
+                b = next(newRun, b, "second");
+            } else {
+                int fields = differences(a, b);
+                if (fields == 0) {
+                    unchanged++;
+                } else {
+                    modified++;
+                    changes.accept(new Change(a, b, fields));
+                }
+                a = next(oldRun, a, "first");
+                b = next(newRun, b, "second");
+            }
+        }
+    }
+
+    /**
+     * Reads the next result and checks that the IDs go up.
+     */
+    private EvaluationResult next(Source source, EvaluationResult previous, String run) throws IOException {
+        EvaluationResult r = source.next();
+        if (r == null) {
+            return null;
+        }
+        if (previous != null && r.getApplicantId().compareTo(previous.getApplicantId()) <= 0) {
+            throw new IllegalStateException("The " + run + " run is not sorted by applicant ID at "
+                    + r.getApplicantId());
+        }
+        return r;
+    }
+
+    private int differences(EvaluationResult a, EvaluationResult b) {
+        int fields = 0;
+        if (a.isAccepted() != b.isAccepted()) {
+            fields |= STATUS;
+            statusChanged++;
+        }
+        if (!Objects.equals(a.getType(), b.getType())) {
+            fields |= TYPE;
+            typeChanged++;
+        }
+        if (!Objects.equals(a.getDuration(), b.getDuration())) {
+            fields |= DURATION;
+            durationChanged++;
+        }
+        if (!Objects.equals(a.getRejectionReason(), b.getRejectionReason())) {
+            fields |= REASON;
+            reasonChanged++;
+        }
+        return fields;
+    }
+
+    /**
+     * Prints the counts, after the changes were printed by the consumer.
+     */
+    public void printSummary(PrintStream out) {
+        out.println("Result diff: " + (unchanged + modified + removed) + " before, "
+                + (unchanged + modified + added) + " after");
+        out.println("unchanged,added,removed,statusChanged,typeChanged,durationChanged,reasonChanged");
+        out.println(unchanged + "," + added + "," + removed + "," + statusChanged + "," + typeChanged + ","
+                + durationChanged + "," + reasonChanged);
+    }
+
+    public int getUnchangedCount() {
+        return unchanged;
+    }
+
+    public int getAddedCount() {
+        return added;
+    }
+
+    public int getRemovedCount() {
+        return removed;
+    }
+
+    /**
+     * @return number of applicants that differ in any way
+     */
+    public int getChangedCount() {
+        return modified + added + removed;
+    }
+
+    /**
+     * One applicant whose result differs between the runs.
+     * An added applicant has no old result, a removed one no new result.
+     */
+    public static final class Change {
+        private final EvaluationResult oldResult;
+        private final EvaluationResult newResult;
+        private final int fields;
+
+        Change(EvaluationResult oldResult, EvaluationResult newResult, int fields) {
+            this.oldResult = oldResult;
+            this.newResult = newResult;
+            this.fields = fields;
+        }
+
+        public String getApplicantId() {
+            return oldResult != null ? oldResult.getApplicantId() : newResult.getApplicantId();
+        }
+
+        public EvaluationResult getOldResult() {
+            return oldResult;
+        }
+
+        public EvaluationResult getNewResult() {
+            return newResult;
+        }
+
+        /**
+         * @param field one of STATUS, TYPE, DURATION, REASON
+         */
+        public boolean changed(int field) {
+            return (fields & field) != 0;
+        }
+
+        /**
+         * Example: "1102: Accepted Full 2 years -> Rejected (GPA below 3.0)"
+         */
+        @Override
+        public String toString() {
+            if (oldResult == null) {
+                return getApplicantId() + " added: " + describe(newResult);
+            }
+            if (newResult == null) {
+                return getApplicantId() + " removed: " + describe(oldResult);
+            }
+            return getApplicantId() + ": " + describe(oldResult) + " -> " + describe(newResult);
+        }
+
+        private static String describe(EvaluationResult r) {
+            if (r.isAccepted()) {
+                return "Accepted " + r.getType() + " " + r.getDuration();
+            }
+            return "Rejected (" + r.getRejectionReason() + ")";
+        }
+    }
+}
@@ -1,16 +1,24 @@
 package system;
 
 import applications.Application;
-import applications.MeritApplication;
 import applications.NeedApplication;
-import applications.ResearchApplication;
+import applications.ScholarshipCategoryProvider;
+import enums.AwardType;
 import model.Applicant;
+import model.ApplicantView;
 import model.EvaluationResult;
 import model.FamilyInfo;
+import model.OffHeapApplicantStore;
+import monitoring.ApplicationCreationEvent;
+import monitoring.EvaluationBatchEvent;
+import monitoring.SortEvent;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Manages the entire scholarship evaluation process.
@@ -18,65 +26,580 @@ import java.util.List;
  */
 public class ScholarshipSystem {
 
+    // Plain class instead of Comparator.comparing: no lambda bootstrap at startup
+    private static final Comparator<EvaluationResult> BY_APPLICANT_ID = new Comparator<EvaluationResult>() {
+        @Override
+        public int compare(EvaluationResult a, EvaluationResult b) {
+            return a.getApplicantId().compareTo(b.getApplicantId());
+        }
+    };
+
     private final List<Applicant> applicantsList;
     private final List<String> familyInfoApplicantIds;
     private final List<FamilyInfo> familyInfoList;
     private final List<Application> applicationsList;
     private final List<EvaluationResult> resultsList;
+    private final List<EvaluationResult> preScreenedResults; // early rejections from loadData
+    private boolean preScreening;
+    private boolean offHeap;
+    private OffHeapApplicantStore offHeapStore; // filled by loadData when offHeap is on
+    private AuditLog auditLog;                  // null when decisions are not logged
+    private boolean batchEvaluation;            // evaluateApplications one category at a time
+    private ExternalResultSorter externalSorter; // null when the results are kept in resultsList
 
+    private final CategoryRegistry categories;
     private final CSVReader reader;
 
     public ScholarshipSystem() {
+        this(CategoryRegistry.withDefaults());
+    }
+
+    public ScholarshipSystem(CategoryRegistry categories) {
+        if (categories == null) {
+            throw new IllegalArgumentException("Category registry cannot be null");
+        }
         this.applicantsList = new ArrayList<>();
         this.familyInfoApplicantIds = new ArrayList<>();
         this.familyInfoList = new ArrayList<>();
         this.applicationsList = new ArrayList<>();
         this.resultsList = new ArrayList<>();
-        this.reader = new CSVReader();
+        this.preScreenedResults = new ArrayList<>();
+        this.preScreening = false;
+        this.offHeap = false;
+        this.offHeapStore = null;
+        this.auditLog = null;
+        this.batchEvaluation = false;
+        this.externalSorter = null;
+        this.categories = categories;
+        this.reader = new CSVReader(categories);
+    }
+
+    /**
+     * Turns the pre-screening stage of loadData on or off.
+     * When on, applicants that fail the general checks are rejected while
+     * reading and no Applicant or Application object is built for them.
+     */
+    public void setPreScreening(boolean preScreening) {
+        this.preScreening = preScreening;
+    }
+
+    /**
+     * Turns the off-heap applicant store on or off.
+     * When on, loadData writes the applicants into an OffHeapApplicantStore
+     * and createAndEvaluateApplications reads them through a cursor.
+     * createApplications is not available in this mode.
+     */
+    public void setOffHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Turns per-category batches in evaluateApplications on or off (see BatchEvaluator).
+     * The results are the same. Off by default: tools.BatchBenchmark shows
+     * that the grouping costs more than the megamorphic call it removes,
+     * because most of the time goes into building the results.
+     */
+    public void setBatchEvaluation(boolean batchEvaluation) {
+        this.batchEvaluation = batchEvaluation;
     }
 
+    /**
+     * Sets the sorter that the results go to instead of the results list
+     * (null to keep them in the list). Use this when the results do not fit
+     * in the heap, and read them with writeSortedResults; getSortedResults
+     * is then empty. The caller closes the sorter.
+     */
+    public void setExternalSort(ExternalResultSorter externalSorter) {
+        this.externalSorter = externalSorter;
+    }
+
+    /**
+     * Sets the audit log that every decision is written to (null to stop logging).
+     * While a log is set, pre-screening is skipped so that every decision
+     * is logged with its full inputs. The caller closes the log.
+     */
+    public void setAuditLog(AuditLog auditLog) {
+        this.auditLog = auditLog;
+    }
+
+    /**
+     * Sets the report that loadData adds duplicate and conflicting records to
+     * (null to turn detection off).
+     */
+    public void setConflictReport(ConflictReport conflictReport) {
+        reader.setConflictReport(conflictReport);
+    }
+
+    /**
+     * Sets the checkpoint that loadData uses for a single large file
+     * (null to turn it off). See IngestCheckpoint.
+     */
+    public void setCheckpoint(IngestCheckpoint checkpoint) {
+        reader.setCheckpoint(checkpoint);
+    }
+
+    /**
+     * Sets the index that loadData adds every applicant name to
+     * (null to turn it off). See NameMatchIndex.findSuspects.
+     */
+    public void setNameIndex(NameMatchIndex nameIndex) {
+        reader.setNameIndex(nameIndex);
+    }
+
+    /**
+     * Reads the applicant data.
+     *
+     * @param filePath CSV file, a directory of CSV shards, or a glob (gzip shards are supported)
+     */
     public void loadData(String filePath) {
-        reader.readData(filePath, applicantsList, familyInfoApplicantIds, familyInfoList);
+        preScreenedResults.clear();
+        boolean preScreen = preScreening && auditLog == null;
+        offHeapStore = null;
+        if (offHeap) {
+            OffHeapApplicantStore store = startOffHeapLoad();
+            reader.readData(filePath, preScreen, offHeapSink(store));
+            offHeapStore = store;
+            return;
+        }
+        reader.readData(filePath, applicantsList, familyInfoApplicantIds, familyInfoList,
+                preScreen ? preScreenedResults : null);
+    }
+
+    /**
+     * Reads the applicant data from a stream of CSV rows (the stream is not closed).
+     */
+    public void loadData(InputStream in) throws IOException {
+        preScreenedResults.clear();
+        boolean preScreen = preScreening && auditLog == null;
+        offHeapStore = null;
+        if (offHeap) {
+            OffHeapApplicantStore store = startOffHeapLoad();
+            reader.readData(in, preScreen, offHeapSink(store));
+            offHeapStore = store;
+            return;
+        }
+        reader.readData(in, applicantsList, familyInfoApplicantIds, familyInfoList,
+                preScreen ? preScreenedResults : null);
+    }
+
+    /**
+     * Empties the heap lists and creates the store for an off-heap load.
+     */
+    private OffHeapApplicantStore startOffHeapLoad() {
+        applicantsList.clear();
+        familyInfoApplicantIds.clear();
+        familyInfoList.clear();
+        return new OffHeapApplicantStore(1024);
+    }
+
+    /**
+     * @return sink that copies every applicant into the off-heap store as
+     *         soon as the reader has built it, so the Applicant objects of
+     *         the whole file are never on the heap at the same time
+     */
+    private CSVReader.ApplicantSink offHeapSink(OffHeapApplicantStore store) {
+        return new CSVReader.ApplicantSink() {
+            @Override
+            public void applicant(Applicant applicant, FamilyInfo familyInfo) {
+                ScholarshipCategoryProvider category = categories.find(applicant.getId());
+                boolean keepInfo = category != null && category.needsFamilyInfo();
+                store.add(applicant, keepInfo ? familyInfo : null);
+            }
+
+            @Override
+            public void preScreened(EvaluationResult result) {
+                preScreenedResults.add(result);
+            }
+        };
     }
 
     public void createApplications() {
-        for (Applicant applicant : applicantsList) {
-            String id = applicant.getId();
-            Application app = null;
+        if (offHeapStore != null) {
+            throw new IllegalStateException("Applications cannot be created from the off-heap store");
+        }
+        CategoryBatch batch = new CategoryBatch();
+        Application[] apps = new Application[EvaluationBatchEvent.BATCH_SIZE];
+        for (int from = 0; from < applicantsList.size(); from += EvaluationBatchEvent.BATCH_SIZE) {
+            int to = Math.min(applicantsList.size(), from + EvaluationBatchEvent.BATCH_SIZE);
+            groupApplicants(batch, from, to);
+            createApplications(batch, from, apps);
+            for (int i = 0; i < to - from; i++) {
+                if (apps[i] != null) {
+                    applicationsList.add(apps[i]);
+                    apps[i] = null;
+                }
+            }
+        }
+    }
+
+    public void evaluateApplications() {
+        resultsList.clear();
+        for (EvaluationResult r : preScreenedResults) {
+            addResult(r);
+        }
 
-            if (id.startsWith("11")) {             // Merit-based
-                app = new MeritApplication(applicant);
+        // Evaluated in batches grouped by category, so each event covers
+        // only the evaluations of one category
+        CategoryBatch batch = new CategoryBatch();
+        Application[] apps = new Application[EvaluationBatchEvent.BATCH_SIZE];
+        EvaluationResult[] results = new EvaluationResult[EvaluationBatchEvent.BATCH_SIZE];
+        for (int from = 0; from < applicationsList.size(); from += EvaluationBatchEvent.BATCH_SIZE) {
+            int to = Math.min(applicationsList.size(), from + EvaluationBatchEvent.BATCH_SIZE);
+            batch.clear(to - from);
+            for (int i = from; i < to; i++) {
+                apps[i - from] = applicationsList.get(i);
+                batch.set(i - from, categories.find(apps[i - from].getApplicantId()));
+            }
+            batch.group();
+            evaluateApplications(batch, apps, results);
 
-            } else if (id.startsWith("22")) {      // Need-based
-                FamilyInfo info = findFamilyInfoFor(id);
-                app = new NeedApplication(applicant, info);
+            for (int i = 0; i < to - from; i++) {
+                if (results[i] != null) {
+                    audit(apps[i], results[i]);
+                    addResult(results[i]);
+                }
+                apps[i] = null;
+                results[i] = null;
+            }
+        }
+    }
 
-            } else if (id.startsWith("33")) {      // Research Grant
-                app = new ResearchApplication(applicant);
+    /**
+     * Creates and evaluates the applications in one pass.
+     * The applications are built and evaluated in batches of
+     * EvaluationBatchEvent.BATCH_SIZE, so each one is released after its
+     * batch instead of living until every applicant is done.
+     *
+     * @param keepApplications true to also fill the applications list
+     *                         (same as calling createApplications first)
+     */
+    public void createAndEvaluateApplications(boolean keepApplications) {
+        applicationsList.clear();
+        resultsList.clear();
+        for (EvaluationResult r : preScreenedResults) {
+            addResult(r);
+        }
 
-            } else {
+        if (offHeapStore != null) {
+            evaluateOffHeap();
+            return;
+        }
+
+        CategoryBatch batch = new CategoryBatch();
+        Application[] apps = new Application[EvaluationBatchEvent.BATCH_SIZE];
+        EvaluationResult[] results = new EvaluationResult[EvaluationBatchEvent.BATCH_SIZE];
+        for (int from = 0; from < applicantsList.size(); from += EvaluationBatchEvent.BATCH_SIZE) {
+            int to = Math.min(applicantsList.size(), from + EvaluationBatchEvent.BATCH_SIZE);
+            groupApplicants(batch, from, to);
+            createApplications(batch, from, apps);
+            evaluateApplications(batch, apps, results);
+
+            for (int i = 0; i < to - from; i++) {
+                if (results[i] != null) {
+                    if (keepApplications) {
+                        applicationsList.add(apps[i]);
+                    }
+                    audit(apps[i], results[i]);
+                    addResult(results[i]);
+                }
+                apps[i] = null;
+                results[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Groups the applicants from .. to - 1 by category.
+     * Applicants with an unknown ID prefix are reported and left out.
+     */
+    private void groupApplicants(CategoryBatch batch, int from, int to) {
+        batch.clear(to - from);
+        for (int i = from; i < to; i++) {
+            String id = applicantsList.get(i).getId();
+            ScholarshipCategoryProvider category = categories.find(id);
+            if (category == null) {
                 System.err.println("Unknown applicant ID prefix: " + id);
             }
+            batch.set(i - from, category);
+        }
+        batch.group();
+    }
 
-            if (app != null) {
-                applicationsList.add(app);
+    /**
+     * Creates the applications of a grouped batch, one creation event per category.
+     *
+     * @param from index of the first applicant of the batch
+     * @param apps filled at the batch positions (unknown prefixes stay null)
+     */
+    private void createApplications(CategoryBatch batch, int from, Application[] apps) {
+        for (int g = 0; g < batch.groups(); g++) {
+            ScholarshipCategoryProvider category = batch.category(g);
+            ApplicationCreationEvent event = ApplicationCreationEvent.start();
+            for (int k = batch.from(g); k < batch.to(g); k++) {
+                int position = batch.position(k);
+                Applicant applicant = applicantsList.get(from + position);
+                FamilyInfo info = category.needsFamilyInfo() ? findFamilyInfoFor(applicant.getId()) : null;
+                apps[position] = category.createApplication(applicant, info);
             }
+            event.finish(category.getLabel(), batch.to(g) - batch.from(g));
         }
     }
 
-    public void evaluateApplications() {
+    /**
+     * Evaluates the applications of a grouped batch, one evaluation event per category.
+     *
+     * @param results filled at the batch positions of the applications
+     */
+    private void evaluateApplications(CategoryBatch batch, Application[] apps, EvaluationResult[] results) {
+        for (int g = 0; g < batch.groups(); g++) {
+            List<Application> group = null;
+            if (batchEvaluation) {
+                group = new ArrayList<>(batch.to(g) - batch.from(g));
+                for (int k = batch.from(g); k < batch.to(g); k++) {
+                    group.add(apps[batch.position(k)]);
+                }
+            }
+
+            int accepted = 0;
+            EvaluationBatchEvent event = EvaluationBatchEvent.start();
+            if (group != null) {
+                EvaluationResult[] groupResults = BatchEvaluator.evaluate(group);
+                for (int k = batch.from(g); k < batch.to(g); k++) {
+                    EvaluationResult result = groupResults[k - batch.from(g)];
+                    results[batch.position(k)] = result;
+                    accepted += result.isAccepted() ? 1 : 0;
+                }
+            } else {
+                for (int k = batch.from(g); k < batch.to(g); k++) {
+                    int position = batch.position(k);
+                    EvaluationResult result = apps[position].evaluate();
+                    results[position] = result;
+                    accepted += result.isAccepted() ? 1 : 0;
+                }
+            }
+            event.finish(batch.category(g).getLabel(), accepted, batch.to(g) - batch.from(g) - accepted);
+        }
+    }
+
+    /**
+     * Creates and evaluates the applications like createAndEvaluateApplications,
+     * then lets the allocator assign the awards under its budgets.
+     * The results list holds the allocated results afterwards.
+     * The audit log gets the decision of the rules for every applicant
+     * (before the budget), which is what tools.AuditReplay can check.
+     */
+    public void allocateAwards(AwardAllocator allocator) {
+        applicationsList.clear();
         resultsList.clear();
-        for (Application app : applicationsList) {
-            EvaluationResult result = app.evaluate();
-            resultsList.add(result);
+        allocator.setOutput(this::addResult);
+
+        for (EvaluationResult r : preScreenedResults) {
+            allocator.offer(r, 0.0); // rejected, passed through
+        }
+
+        if (offHeapStore != null) {
+            OffHeapApplicantStore.Cursor cursor = offHeapStore.cursor();
+            for (int i = 0; i < offHeapStore.size(); i++) {
+                cursor.moveTo(i);
+                ScholarshipCategoryProvider category = categories.find(cursor.getApplicantId());
+                if (category == null) {
+                    System.err.println("Unknown applicant ID prefix: " + cursor.getApplicantId());
+                    continue;
+                }
+                FamilyInfo info = cursor.getFamilyInfo();
+                EvaluationResult result = category.evaluate(cursor, info);
+                if (auditLog != null) {
+                    auditLog.append(cursor, info, result);
+                }
+                allocator.offer(result, category.getPriority(cursor, info), halfDuration(category, cursor, info, result));
+            }
+        } else {
+            for (Applicant applicant : applicantsList) {
+                Application app = createApplication(applicant);
+                if (app == null) {
+                    continue;
+                }
+                ScholarshipCategoryProvider category = categories.find(app.getApplicantId());
+                FamilyInfo info = familyInfoOf(app);
+                EvaluationResult result = app.evaluate();
+                audit(app, result);
+                allocator.offer(result, category.getPriority(app, info), halfDuration(category, app, info, result));
+            }
+        }
+
+        allocator.finish();
+    }
+
+    /**
+     * @return duration of the result if the allocator cuts it to a Half award
+     */
+    private static String halfDuration(ScholarshipCategoryProvider category, ApplicantView applicant,
+                                       FamilyInfo info, EvaluationResult result) {
+        if (!AwardType.FULL.toString().equals(result.getType())) {
+            return result.getDuration();
+        }
+        return category.getDuration(applicant, info, AwardType.HALF);
+    }
+
+    /**
+     * Runs the what-if simulation over the loaded applicants.
+     * Call loadData first; the normal results are not changed.
+     */
+    public void simulate(PolicySimulator simulator) {
+        for (int i = 0; i < preScreenedResults.size(); i++) {
+            simulator.addRejected();
+        }
+
+        if (offHeapStore != null) {
+            OffHeapApplicantStore.Cursor cursor = offHeapStore.cursor();
+            for (int i = 0; i < offHeapStore.size(); i++) {
+                cursor.moveTo(i);
+                simulator.add(cursor, cursor.getFamilyInfo());
+            }
+            return;
+        }
+
+        for (Applicant applicant : applicantsList) {
+            Application app = createApplication(applicant);
+            if (app != null) {
+                simulator.add(app, familyInfoOf(app));
+            }
         }
     }
 
     public List<EvaluationResult> getSortedResults() {
-        resultsList.sort(Comparator.comparing(EvaluationResult::getApplicantId));
+        SortEvent event = new SortEvent();
+        event.begin();
+        resultsList.sort(BY_APPLICANT_ID);
+        event.results = resultsList.size();
+        event.commit();
         return resultsList;
     }
 
+    /**
+     * Passes the results to the output in applicant ID order, from the
+     * external sorter if one is set, otherwise from getSortedResults.
+     *
+     * @return number of results
+     */
+    public int writeSortedResults(Consumer<EvaluationResult> output) throws IOException {
+        if (externalSorter == null) {
+            List<EvaluationResult> sorted = getSortedResults();
+            for (EvaluationResult r : sorted) {
+                output.accept(r);
+            }
+            return sorted.size();
+        }
+
+        SortEvent event = new SortEvent();
+        event.begin();
+        int count = externalSorter.finish(output);
+        event.results = count;
+        event.commit();
+        return count;
+    }
+
+    private void addResult(EvaluationResult result) {
+        if (externalSorter != null) {
+            externalSorter.add(result);
+        } else {
+            resultsList.add(result);
+        }
+    }
+
+    /**
+     * Evaluates every applicant of the off-heap store through one cursor,
+     * without creating Applicant or Application objects.
+     */
+    private void evaluateOffHeap() {
+        OffHeapApplicantStore.Cursor cursor = offHeapStore.cursor();
+        CategoryBatch batch = new CategoryBatch();
+        EvaluationResult[] results = new EvaluationResult[EvaluationBatchEvent.BATCH_SIZE];
+        for (int from = 0; from < offHeapStore.size(); from += EvaluationBatchEvent.BATCH_SIZE) {
+            int to = Math.min(offHeapStore.size(), from + EvaluationBatchEvent.BATCH_SIZE);
+            batch.clear(to - from);
+            for (int i = from; i < to; i++) {
+                cursor.moveTo(i);
+                String id = cursor.getApplicantId();
+                ScholarshipCategoryProvider category = categories.find(id);
+                if (category == null) {
+                    System.err.println("Unknown applicant ID prefix: " + id);
+                }
+                batch.set(i - from, category);
+                results[i - from] = null;
+            }
+            batch.group();
+
+            // One event per category of the batch
+            for (int g = 0; g < batch.groups(); g++) {
+                ScholarshipCategoryProvider category = batch.category(g);
+                int accepted = 0;
+                EvaluationBatchEvent event = EvaluationBatchEvent.start();
+                for (int k = batch.from(g); k < batch.to(g); k++) {
+                    int position = batch.position(k);
+                    cursor.moveTo(from + position);
+                    EvaluationResult result = category.evaluate(cursor, cursor.getFamilyInfo());
+                    results[position] = result;
+                    accepted += result.isAccepted() ? 1 : 0;
+                }
+                event.finish(category.getLabel(), accepted, batch.to(g) - batch.from(g) - accepted);
+            }
+
+            // Second pass over the batch for the log and the results,
+            // so the event does not time them
+            for (int i = from; i < to; i++) {
+                EvaluationResult result = results[i - from];
+                if (result == null) {
+                    continue;
+                }
+                if (auditLog != null) {
+                    cursor.moveTo(i);
+                    auditLog.append(cursor, cursor.getFamilyInfo(), result);
+                }
+                addResult(result);
+            }
+        }
+    }
+
+    /**
+     * Writes one decision to the audit log, if there is one.
+     */
+    private void audit(Application app, EvaluationResult result) {
+        if (auditLog == null) {
+            return;
+        }
+        auditLog.append(app, familyInfoOf(app), result);
+    }
+
+    /**
+     * @return family info used by the application, or null
+     */
+    private static FamilyInfo familyInfoOf(Application app) {
+        if (app instanceof NeedApplication) {
+            return ((NeedApplication) app).getFamilyInfo();
+        }
+        return null;
+    }
+
+    /**
+     * Builds the Application of the category registered for the ID prefix.
+     *
+     * @param applicant applicant to wrap
+     * @return new Application, or null if the ID prefix is unknown
+     */
+    private Application createApplication(Applicant applicant) {
+        String id = applicant.getId();
+        ScholarshipCategoryProvider category = categories.find(id);
+
+        if (category == null) {
+            System.err.println("Unknown applicant ID prefix: " + id);
+            return null;
+        }
+
+        FamilyInfo info = category.needsFamilyInfo() ? findFamilyInfoFor(id) : null;
+        return category.createApplication(applicant, info);
+    }
+
     /**
      * Finds the FamilyInfo for the given applicant ID by searching in the lists.
      *
@@ -0,0 +1,234 @@
+package system;
+
+import model.EvaluationResult;
+import output.BinaryResultReader;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Sharded evaluation over several worker processes, so that no single
+ * JVM has to hold every applicant.
+ *
+ * The coordinator listens on a socket and waits for the workers
+ * (see ShardWorker) to connect. It then reads the input rows and sends
+ * each row to the worker chosen by the hash of its applicant ID, so all
+ * rows of one applicant go to the same worker, in file order. Each worker
+ * evaluates its shard and sends back its results sorted by ID; the
+ * coordinator merges these sorted streams into one stream in ID order.
+ *
+ * Local workers are started as child processes. For more machines, bind
+ * to a reachable address and start ShardWorker there with this host and port.
+ */
+public class ShardCoordinator {
+
+    private static final int ACCEPT_TIMEOUT_MILLIS = 60_000;
+
+    private final int workerCount;
+    private final InetAddress bindAddress;
+    private final int port;
+    private final boolean startLocalWorkers;
+
+    /**
+     * Starts the given number of local worker processes on a free localhost port.
+     */
+    public ShardCoordinator(int workerCount) {
+        this(workerCount, InetAddress.getLoopbackAddress(), 0, true);
+    }
+
+    /**
+     * @param workerCount       number of shards (and workers)
+     * @param bindAddress       address to listen on
+     * @param port              port to listen on, or 0 for a free port
+     * @param startLocalWorkers true to start the workers as child processes,
+     *                          false to wait for workers started elsewhere
+     */
+    public ShardCoordinator(int workerCount, InetAddress bindAddress, int port, boolean startLocalWorkers) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("At least one worker is needed");
+        }
+        if (bindAddress == null) {
+            throw new IllegalArgumentException("Bind address cannot be null");
+        }
+        if (port < 0 || port > 65535) {
+            throw new IllegalArgumentException("Invalid port: " + port);
+        }
+        this.workerCount = workerCount;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.startLocalWorkers = startLocalWorkers;
+    }
+
+    /**
+     * Evaluates the input on the workers and passes the results to the output in ID order.
+     *
+     * @param filePath CSV file, a directory of CSV shards, or a glob (same as loadData)
+     * @return number of results
+     */
+    public int run(String filePath, Consumer<EvaluationResult> output) throws IOException {
+        List<Path> files = CSVReader.findShards(filePath);
+        List<Process> processes = new ArrayList<>();
+        Socket[] workers = new Socket[workerCount];
+
+        try (ServerSocket server = new ServerSocket(port, workerCount, bindAddress)) {
+            server.setSoTimeout(ACCEPT_TIMEOUT_MILLIS);
+            if (startLocalWorkers) {
+                for (int i = 0; i < workerCount; i++) {
+                    processes.add(startWorker(server.getLocalPort()));
+                }
+            } else {
+                System.err.println("Waiting for " + workerCount + " workers on "
+                        + bindAddress.getHostAddress() + ":" + server.getLocalPort());
+            }
+            for (int i = 0; i < workerCount; i++) {
+                workers[i] = server.accept();
+            }
+
+            sendRows(files, workers);
+            int count = mergeResults(workers, output);
+            waitFor(processes);
+            return count;
+        } finally {
+            for (Socket s : workers) {
+                if (s != null) {
+                    s.close();
+                }
+            }
+            for (Process p : processes) {
+                p.destroy();
+            }
+        }
+    }
+
+    private Process startWorker(int serverPort) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ShardWorker.class.getName());
+        command.add(bindAddress.getHostAddress());
+        command.add(String.valueOf(serverPort));
+
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        return builder.start();
+    }
+
+    /**
+     * Sends every row to the worker of its applicant ID, then closes the sending side.
+     * Rows without an ID go to the first worker, which reports them.
+     */
+    private void sendRows(List<Path> files, Socket[] workers) throws IOException {
+        OutputStream[] out = new OutputStream[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            out[i] = new BufferedOutputStream(workers[i].getOutputStream(), 64 * 1024);
+        }
+
+        for (Path file : files) {
+            try (BufferedReader br = new BufferedReader(
+                    new InputStreamReader(CSVReader.open(file), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    if (line.trim().isEmpty()) {
+                        continue;
+                    }
+                    OutputStream target = out[shardOf(line)];
+                    target.write(line.getBytes(StandardCharsets.UTF_8));
+                    target.write('\n');
+                }
+            }
+        }
+
+        for (int i = 0; i < workers.length; i++) {
+            out[i].flush();
+            workers[i].shutdownOutput(); // End of input for this worker
+        }
+    }
+
+    /**
+     * @return worker index for the applicant ID of a row (the second field)
+     */
+    private int shardOf(String line) {
+        int start = line.indexOf(',');
+        if (start < 0) {
+            return 0;
+        }
+        int end = line.indexOf(',', start + 1);
+        String id = (end < 0 ? line.substring(start + 1) : line.substring(start + 1, end)).trim();
+        return (id.hashCode() & 0x7fffffff) % workerCount;
+    }
+
+    /**
+     * K-way merge of the sorted result streams of the workers.
+     */
+    private int mergeResults(Socket[] workers, Consumer<EvaluationResult> output) throws IOException {
+        PriorityQueue<Head> heads = new PriorityQueue<>(workers.length);
+        for (int i = 0; i < workers.length; i++) {
+            BinaryResultReader reader = new BinaryResultReader(workers[i].getInputStream());
+            EvaluationResult first = reader.next();
+            if (first != null) {
+                heads.add(new Head(reader, first, i));
+            }
+        }
+
+        int count = 0;
+        while (!heads.isEmpty()) {
+            Head head = heads.poll();
+            output.accept(head.current);
+            count++;
+            head.current = head.reader.next();
+            if (head.current != null) {
+                heads.add(head);
+            }
+        }
+        return count;
+    }
+
+    private static void waitFor(List<Process> processes) throws IOException {
+        for (Process p : processes) {
+            try {
+                int exit = p.waitFor();
+                if (exit != 0) {
+                    throw new IOException("Shard worker exited with code " + exit);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the shard workers", e);
+            }
+        }
+    }
+
+    /**
+     * Current (smallest unread) result of one worker.
+     */
+    private static final class Head implements Comparable<Head> {
+        final BinaryResultReader reader;
+        final int worker;
+        EvaluationResult current;
+
+        Head(BinaryResultReader reader, EvaluationResult current, int worker) {
+            this.reader = reader;
+            this.current = current;
+            this.worker = worker;
+        }
+
+        @Override
+        public int compareTo(Head other) {
+            int c = current.getApplicantId().compareTo(other.current.getApplicantId());
+            return c != 0 ? c : Integer.compare(worker, other.worker);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package system;
+
+import model.EvaluationResult;
+import output.BinaryResultEncoder;
+import output.ResultOutput;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.util.Locale;
+
+/**
+ * Worker process of the sharded mode (see ShardCoordinator).
+ *
+ * Connects to the coordinator, reads the CSV rows of its shard until the
+ * coordinator closes its side, runs the normal load, create and evaluate
+ * stages, and sends the results back in applicant ID order in the binary
+ * result format.
+ *
+ * Usage: java system.ShardWorker <coordinator host> <port>
+ */
+public class ShardWorker {
+
+    public static void main(String[] args) {
+        Locale.setDefault(Locale.US);
+
+        if (args.length != 2) {
+            System.err.println("Usage: java system.ShardWorker <coordinator host> <port>");
+            System.exit(2);
+        }
+
+        try (Socket socket = new Socket(args[0], Integer.parseInt(args[1]))) {
+            ScholarshipSystem system = new ScholarshipSystem();
+            system.setPreScreening(true);
+            system.loadData(socket.getInputStream());
+            system.createAndEvaluateApplications(false);
+
+            ResultOutput out = new ResultOutput(Channels.newChannel(socket.getOutputStream()), false);
+            BinaryResultEncoder encoder = new BinaryResultEncoder();
+            encoder.writeHeader(out);
+            for (EvaluationResult result : system.getSortedResults()) {
+                encoder.write(result, out);
+            }
+            out.flush();
+            socket.shutdownOutput();
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Shard worker failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package system;
+
+import applications.ScholarshipCategoryProvider;
+import model.Applicant;
+import model.EvaluationResult;
+import model.FamilyInfo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Follows a CSV file that grows while it is being read (rows are only appended).
+ *
+ * The rows of every applicant are kept in memory, sorted by applicant ID
+ * (no Maps, like the rest of the system). After an update only the bytes
+ * after the remembered file offset are read. The new rows are sorted by
+ * ID and added to their applicants in one pass, with the new applicants
+ * merged into the sorted list at once, so even the first update (the
+ * whole file, in any ID order) costs O(n log n). Only the applicants with
+ * new rows are built and evaluated again, with the same rules as loadData (first 'A' line wins, last 'I'
+ * line wins). A result is passed to the output only when it is new or
+ * different from the last one, so the output is a change stream.
+ *
+ * A half-written last line is kept until its line end arrives. If the
+ * file gets shorter (replaced or truncated) everything is read again.
+ */
+public class WatchMode {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final long POLL_MILLIS = 1000; // also check without an event (some file systems miss them)
+
+    private static final Comparator<String[]> BY_APPLICANT_ID = new Comparator<String[]>() {
+        @Override
+        public int compare(String[] a, String[] b) {
+            return a[1].compareTo(b[1]);
+        }
+    };
+
+    private final Path file;
+    private final CategoryRegistry categories;
+    private final CSVReader reader;
+    private final Consumer<EvaluationResult> output;
+    private final List<Entry> entries;     // sorted by applicant ID
+    private final ByteBuffer readBuffer;
+    private byte[] pending;                // bytes of a line without its line end yet
+    private int pendingLength;
+    private long offset;                   // file position of the next unread byte
+
+    /**
+     * @param output receives the new and changed results
+     */
+    public WatchMode(Path file, CategoryRegistry categories, Consumer<EvaluationResult> output) {
+        if (file == null || categories == null || output == null) {
+            throw new IllegalArgumentException("File, categories and output cannot be null");
+        }
+        this.file = file.toAbsolutePath();
+        this.categories = categories;
+        this.reader = new CSVReader(categories);
+        this.output = output;
+        this.entries = new ArrayList<>();
+        this.readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        this.pending = new byte[256];
+        this.pendingLength = 0;
+        this.offset = 0;
+    }
+
+    /**
+     * Reads what was appended since the last call and passes the changed results to the output.
+     * The first call reads the whole file.
+     *
+     * @return number of results passed to the output
+     */
+    public int update() throws IOException {
+        List<String[]> rows = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < offset) {
+                System.err.println("File got shorter, reading it again: " + file);
+                entries.clear();
+                pendingLength = 0;
+                offset = 0;
+            }
+
+            channel.position(offset);
+            int read;
+            while ((read = channel.read(readBuffer)) > 0) {
+                offset += read;
+                readBuffer.flip();
+                splitLines(rows);
+                readBuffer.clear();
+            }
+        }
+
+        // Evaluate again in ID order
+        List<Entry> affected = new ArrayList<>();
+        addRows(rows, affected);
+        int changed = 0;
+        for (Entry entry : affected) {
+            EvaluationResult result = evaluate(entry);
+            if (result != null && !sameResult(result, entry.lastResult)) {
+                entry.lastResult = result;
+                output.accept(result);
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Calls update once, then again every time the file changes, until the thread is interrupted.
+     */
+    public void watch() throws IOException {
+        update();
+
+        Path directory = file.getParent();
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watcher.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents(); // Any event in the folder: check the file size below
+                    key.reset();
+                }
+                update();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return number of applicants seen so far
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Cuts the read bytes into lines and splits every complete line into rows.
+     */
+    private void splitLines(List<String[]> rows) {
+        byte[] bytes = readBuffer.array();
+        int start = readBuffer.position();
+        int end = readBuffer.limit();
+
+        for (int i = start; i < end; i++) {
+            if (bytes[i] != '\n') {
+                continue;
+            }
+            String line;
+            if (pendingLength > 0) {
+                appendPending(bytes, start, i - start);
+                line = decode(pending, 0, pendingLength);
+                pendingLength = 0;
+            } else {
+                line = decode(bytes, start, i - start);
+            }
+            String[] parts = CSVReader.splitRow(line);
+            if (parts != null) {
+                rows.add(parts);
+            }
+            start = i + 1;
+        }
+        appendPending(bytes, start, end - start);
+    }
+
+    private void appendPending(byte[] bytes, int from, int length) {
+        if (pendingLength + length > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pendingLength + length, pending.length * 2));
+        }
+        System.arraycopy(bytes, from, pending, pendingLength, length);
+        pendingLength += length;
+    }
+
+    private static String decode(byte[] bytes, int from, int length) {
+        if (length > 0 && bytes[from + length - 1] == '\r') {
+            length--; // Windows line end
+        }
+        return new String(bytes, from, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Adds the rows of one update to their applicants.
+     * The rows are sorted by applicant ID first (the sort is stable, so the
+     * rows of one applicant keep their file order). One walk then finds the
+     * known applicants by binary search and collects the new ones in ID
+     * order, and one merge puts the new ones into the sorted list.
+     *
+     * @param affected gets every applicant with new rows, in ID order
+     */
+    private void addRows(List<String[]> rows, List<Entry> affected) {
+        rows.sort(BY_APPLICANT_ID);
+        List<Entry> added = new ArrayList<>();
+        int i = 0;
+        while (i < rows.size()) {
+            String applicantId = rows.get(i)[1];
+            int index = find(applicantId);
+            Entry entry;
+            if (index >= 0) {
+                entry = entries.get(index);
+            } else {
+                entry = new Entry(applicantId);
+                added.add(entry);
+            }
+            while (i < rows.size() && rows.get(i)[1].equals(applicantId)) {
+                entry.rows.add(rows.get(i));
+                i++;
+            }
+            affected.add(entry);
+        }
+
+        if (!added.isEmpty()) {
+            mergeEntries(added);
+        }
+    }
+
+    /**
+     * Merges new entries (sorted, with IDs that are not in the list yet) into the entries.
+     */
+    private void mergeEntries(List<Entry> added) {
+        List<Entry> merged = new ArrayList<>(entries.size() + added.size());
+        int a = 0;
+        int b = 0;
+        while (a < entries.size() || b < added.size()) {
+            if (b == added.size() || (a < entries.size() && entries.get(a).compareTo(added.get(b)) < 0)) {
+                merged.add(entries.get(a++));
+            } else {
+                merged.add(added.get(b++));
+            }
+        }
+        entries.clear();
+        entries.addAll(merged);
+    }
+
+    /**
+     * Binary search by applicant ID.
+     *
+     * @return index of the entry, or (-(insertion point) - 1) if there is none
+     */
+    private int find(String applicantId) {
+        int low = 0;
+        int high = entries.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = entries.get(mid).applicantId.compareTo(applicantId);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Builds and evaluates one applicant from all of its rows.
+     *
+     * @return the result, or null if the applicant cannot be built yet (for example no 'A' line)
+     */
+    private EvaluationResult evaluate(Entry entry) {
+        EvaluationResult[] result = new EvaluationResult[1];
+
+        reader.buildApplicant(entry.applicantId, entry.rows, true, new CSVReader.ApplicantSink() {
+            @Override
+            public void applicant(Applicant applicant, FamilyInfo familyInfo) {
+                ScholarshipCategoryProvider category = categories.find(applicant.getId());
+                if (category == null) {
+                    System.err.println("Unknown applicant ID prefix: " + applicant.getId());
+                    return;
+                }
+                result[0] = category.evaluate(applicant, category.needsFamilyInfo() ? familyInfo : null);
+            }
+
+            @Override
+            public void preScreened(EvaluationResult rejection) {
+                result[0] = rejection;
+            }
+        });
+        return result[0];
+    }
+
+    private static boolean sameResult(EvaluationResult a, EvaluationResult b) {
+        return b != null
+                && a.isAccepted() == b.isAccepted()
+                && a.getName().equals(b.getName())
+                && a.getScholarshipType().equals(b.getScholarshipType())
+                && Objects.equals(a.getType(), b.getType())
+                && Objects.equals(a.getDuration(), b.getDuration())
+                && Objects.equals(a.getRejectionReason(), b.getRejectionReason());
+    }
+
+    /**
+     * All rows of one applicant and its last result.
+     */
+    private static final class Entry implements Comparable<Entry> {
+        final String applicantId;
+        final List<String[]> rows;
+        EvaluationResult lastResult;
+
+        Entry(String applicantId) {
+            this.applicantId = applicantId;
+            this.rows = new ArrayList<>(4);
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return applicantId.compareTo(other.applicantId);
+        }
+    }
+}
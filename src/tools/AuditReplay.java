@@ -0,0 +1,68 @@
+package tools;
+
+import applications.ScholarshipCategoryProvider;
+import model.EvaluationResult;
+import system.AuditLog;
+import system.CategoryRegistry;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Runs the current rules again over an audit log and reports every
+ * decision that changed.
+ *
+ * Usage: java tools.AuditReplay <audit log file>
+ * Exit code: 0 = all decisions are the same, 1 = some changed, 2 = error.
+ */
+public class AuditReplay {
+
+    public static void main(String[] args) {
+        Locale.setDefault(Locale.US);
+
+        if (args.length != 1) {
+            System.err.println("Usage: java tools.AuditReplay <audit log file>");
+            System.exit(2);
+        }
+
+        CategoryRegistry categories = CategoryRegistry.withDefaults();
+        long total = 0;
+        long changed = 0;
+
+        try (AuditLog.Reader reader = new AuditLog.Reader(Paths.get(args[0]))) {
+            AuditLog.Record record;
+            while ((record = reader.next()) != null) {
+                total++;
+
+                ScholarshipCategoryProvider category = categories.find(record.getApplicantId());
+                if (category == null) {
+                    System.out.println("Applicant " + record.getApplicantId() + ": category is no longer registered");
+                    changed++;
+                    continue;
+                }
+
+                EvaluationResult now = category.evaluate(record, record.getFamilyInfo());
+                if (!record.sameDecision(now)) {
+                    changed++;
+                    System.out.println("Applicant " + record.getApplicantId() + " changed:");
+                    System.out.println("  logged:  " + describe(record));
+                    System.out.println("  current: " + now.getFormattedResult());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading audit log: " + e.getMessage());
+            System.exit(2);
+        }
+
+        System.out.println("Replayed " + total + " decisions, " + changed + " changed.");
+        System.exit(changed == 0 ? 0 : 1);
+    }
+
+    private static String describe(AuditLog.Record record) {
+        if (record.isAccepted()) {
+            return record.getScholarshipType() + ", Accepted, " + record.getType() + ", " + record.getDuration();
+        }
+        return record.getScholarshipType() + ", Rejected, " + record.getRejectionReason();
+    }
+}
@@ -0,0 +1,267 @@
+package tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A frozen copy of the original loading and evaluation, used by
+ * DifferentialHarness as its reference.
+ *
+ * It uses none of the classes of the application (no CSVReader, Applicant,
+ * Application or EvaluationResult), so changing them cannot change the
+ * reference. The steps are the ones of the first version, on purpose in
+ * the same slow way: every line is kept, applicants are grouped by their
+ * trimmed ID in order of first appearance, the first 'A' line and the last
+ * 'I' line of an ID decide, a bad line is skipped, and the average impact
+ * factor is summed with DoubleStream.sum like the original.
+ *
+ * Do not change this class to follow a new rule; a rule change must show
+ * up as a difference, and the regression files must be updated with it.
+ */
+final class BaselineReference {
+
+    private static final String[] DOCUMENT_TYPES = {"ENR", "REC", "SAV", "RSV", "GRP"};
+
+    private BaselineReference() {
+    }
+
+    /**
+     * @return one formatted result per line, sorted by applicant ID
+     */
+    static String evaluate(Path csv) throws IOException {
+        List<String[]> allLines = new ArrayList<>();
+        try (BufferedReader br = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                if (parts.length >= 2) {
+                    allLines.add(parts);
+                }
+            }
+        }
+
+        List<String> ids = new ArrayList<>();
+        for (String[] parts : allLines) {
+            String id = parts[1].trim();
+            if (!ids.contains(id)) {
+                ids.add(id);
+            }
+        }
+
+        List<String[]> results = new ArrayList<>(); // {id, formatted result}
+        for (String id : ids) {
+            Record record = load(id, allLines);
+            if (record == null) {
+                continue;
+            }
+            String result = record.evaluate();
+            if (result != null) {
+                results.add(new String[]{record.id, result});
+            }
+        }
+
+        results.sort(Comparator.comparing((String[] r) -> r[0]));
+        StringBuilder sb = new StringBuilder();
+        for (String[] r : results) {
+            sb.append(r[1]).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the applicant of the ID, or null if it has no usable 'A' line
+     */
+    private static Record load(String id, List<String[]> allLines) {
+        List<String[]> lines = new ArrayList<>();
+        for (String[] parts : allLines) {
+            if (parts[1].trim().equals(id)) {
+                lines.add(parts);
+            }
+        }
+
+        String[] aLine = null;
+        for (String[] parts : lines) {
+            if (parts[0].trim().equals("A")) {
+                aLine = parts;
+                break;
+            }
+        }
+        if (aLine == null) {
+            return null;
+        }
+
+        Record record;
+        try {
+            record = new Record(id, aLine[2], Double.parseDouble(aLine[3].trim()),
+                    Double.parseDouble(aLine[4].trim()));
+        } catch (Exception e) {
+            return null;
+        }
+
+        for (String[] parts : lines) {
+            try {
+                switch (parts[0].trim()) {
+                    case "D":
+                        if (parts.length >= 4) {
+                            String type = documentType(parts[2].trim());
+                            Integer.parseInt(parts[3].trim());
+                            record.documents.add(type);
+                        }
+                        break;
+                    case "P":
+                        if (parts.length >= 4) {
+                            record.impacts.add(Double.parseDouble(parts[3].trim()));
+                        }
+                        break;
+                    case "T":
+                        if (parts.length >= 3) {
+                            record.transcriptValid = parts[2].trim().equalsIgnoreCase("Y");
+                        }
+                        break;
+                    case "I":
+                        if (parts.length >= 4) {
+                            Double.parseDouble(parts[2].trim());
+                            record.dependents = Math.max(0, Integer.parseInt(parts[3].trim()));
+                            record.hasFamilyInfo = true;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            } catch (Exception e) {
+                // The line is skipped, like in the original
+            }
+        }
+        return record;
+    }
+
+    private static String documentType(String code) {
+        for (String type : DOCUMENT_TYPES) {
+            if (type.equals(code)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown document type: " + code);
+    }
+
+    /**
+     * One applicant with the data the rules look at.
+     */
+    private static final class Record {
+        final String id;
+        final String name;
+        final double gpa;
+        final double income;
+        boolean transcriptValid;
+        boolean hasFamilyInfo;
+        int dependents;
+        final List<String> documents = new ArrayList<>();
+        final List<Double> impacts = new ArrayList<>();
+
+        Record(String id, String name, double gpa, double income) {
+            if (id.isEmpty() || name == null || name.trim().isEmpty()) {
+                throw new IllegalArgumentException("Applicant ID and name cannot be empty");
+            }
+            if (gpa < 0.0 || gpa > 4.0 || income < 0.0) {
+                throw new IllegalArgumentException("GPA or income out of range");
+            }
+            this.id = id;
+            this.name = name.trim();
+            this.gpa = gpa;
+            this.income = income;
+        }
+
+        /**
+         * @return the formatted result, or null for an unknown ID prefix
+         */
+        String evaluate() {
+            String category;
+            if (id.startsWith("11")) {
+                category = "Merit";
+            } else if (id.startsWith("22")) {
+                category = "Need";
+            } else if (id.startsWith("33")) {
+                category = "Research";
+            } else {
+                return null;
+            }
+
+            if (!documents.contains("ENR")) {
+                return rejected(category, "Missing Enrollment Certificate");
+            }
+            if (!transcriptValid) {
+                return rejected(category, "Missing Transcript");
+            }
+            if (gpa < 2.50) {
+                return rejected(category, "GPA below 2.5");
+            }
+
+            switch (category) {
+                case "Merit":
+                    if (gpa < 3.00) {
+                        return rejected(category, "GPA below 3.0");
+                    }
+                    return accepted(category, gpa >= 3.20 ? "Full" : "Half",
+                            documents.contains("REC") ? "2 years" : "1 year");
+                case "Need":
+                    if (!hasFamilyInfo) {
+                        return rejected(category, "Missing mandatory document");
+                    }
+                    double multiplier = 1.0;
+                    if (documents.contains("SAV")) {
+                        multiplier += 0.20;
+                    }
+                    if (dependents >= 3) {
+                        multiplier += 0.10;
+                    }
+                    if (income <= 10000.0 * multiplier) {
+                        return accepted(category, "Full", "1 year");
+                    }
+                    if (income <= 15000.0 * multiplier) {
+                        return accepted(category, "Half", "1 year");
+                    }
+                    return rejected(category, "Financial status unstable");
+                default:
+                    if (impacts.isEmpty() && !documents.contains("GRP")) {
+                        return rejected(category, "Missing publication or proposal");
+                    }
+                    double average = impacts.isEmpty() ? 0.0
+                            : impacts.stream().mapToDouble(Double::doubleValue).sum() / impacts.size();
+                    int months;
+                    String type;
+                    if (average >= 1.50) {
+                        type = "Full";
+                        months = 12;
+                    } else if (average >= 1.00) {
+                        type = "Half";
+                        months = 6;
+                    } else {
+                        return rejected(category, "Publication impact too low");
+                    }
+                    if (!documents.contains("RSV")) {
+                        return accepted(category, type, months == 12 ? "1 year" : "6 months");
+                    }
+                    return accepted(category, type, months == 12 ? "2 years" : "1 year 6 months");
+            }
+        }
+
+        private String accepted(String category, String type, String duration) {
+            return "Applicant ID: " + id + ", Name: " + name + ", Scholarship: " + category
+                    + ", Status: Accepted, Type: " + type + ", Duration: " + duration;
+        }
+
+        private String rejected(String category, String reason) {
+            return "Applicant ID: " + id + ", Name: " + name + ", Scholarship: " + category
+                    + ", Status: Rejected, Reason: " + reason;
+        }
+    }
+}
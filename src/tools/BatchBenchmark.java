@@ -0,0 +1,124 @@
+package tools;
+
+import applications.Application;
+import applications.MeritApplication;
+import applications.NeedApplication;
+import applications.ResearchApplication;
+import enums.DocumentType;
+import model.Applicant;
+import model.Document;
+import model.EvaluationResult;
+import model.FamilyInfo;
+import system.BatchEvaluator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Compares the mixed evaluation loop with BatchEvaluator.
+ *
+ * The tree has no JMH, so this is a small hand-made harness: both
+ * variants run on the same shuffled Merit/Need/Research list, with
+ * warm-up rounds first, and the median time per application is printed.
+ * The two variants alternate so that machine noise affects both.
+ *
+ * Usage: java tools.BatchBenchmark [applications] [rounds]
+ */
+public class BatchBenchmark {
+
+    private static final int WARMUP_ROUNDS = 50;
+
+    private static int sink; // Keeps the results alive
+
+    public static void main(String[] args) {
+        Locale.setDefault(Locale.US);
+
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+
+        List<Application> applications = createApplications(count);
+
+        long[] mixed = new long[rounds];
+        long[] batched = new long[rounds];
+        for (int round = 0; round < WARMUP_ROUNDS + rounds; round++) {
+            long start = System.nanoTime();
+            mixedLoop(applications);
+            long mixedTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            EvaluationResult[] results = BatchEvaluator.evaluate(applications);
+            sink += results.length;
+            long batchedTime = System.nanoTime() - start;
+
+            if (round >= WARMUP_ROUNDS) {
+                mixed[round - WARMUP_ROUNDS] = mixedTime;
+                batched[round - WARMUP_ROUNDS] = batchedTime;
+            }
+        }
+
+        System.out.println("Batch benchmark: " + count + " applications, ns per application (median of "
+                + rounds + " rounds)");
+        System.out.printf("mixed loop  %8.1f ns%n", median(mixed) / count);
+        System.out.printf("batched     %8.1f ns%n", median(batched) / count);
+        if (sink == 42) {
+            System.out.println(); // Never true, only uses the sink
+        }
+    }
+
+    /**
+     * The old loop of evaluateApplications: one call site for every class.
+     */
+    private static void mixedLoop(List<Application> applications) {
+        EvaluationResult[] results = new EvaluationResult[applications.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = applications.get(i).evaluate();
+        }
+        sink += results.length;
+    }
+
+    private static double median(long[] times) {
+        long[] sorted = times.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * Random applications of the three built-in categories, in random order.
+     */
+    private static List<Application> createApplications(int count) {
+        Random random = new Random(42);
+        List<Application> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int category = random.nextInt(3);
+            String id = (category + 1) * 11 + String.format("%06d", i);
+            Applicant a = new Applicant(id, "Applicant " + i, 2.0 + random.nextDouble() * 2.0,
+                    1000 + random.nextInt(20000));
+            a.addDocument(new Document(DocumentType.ENR, 12));
+            a.setTranscriptValid(random.nextInt(10) != 0);
+            if (random.nextBoolean()) {
+                a.addDocument(new Document(DocumentType.REC, 12));
+            }
+            if (random.nextBoolean()) {
+                a.addDocument(new Document(DocumentType.SAV, 12));
+            }
+            if (random.nextBoolean()) {
+                a.addDocument(new Document(DocumentType.RSV, 12));
+            }
+            for (int p = random.nextInt(3); p > 0; p--) {
+                a.addPublication("Paper " + p, random.nextDouble() * 3.0);
+            }
+
+            if (category == 0) {
+                list.add(new MeritApplication(a));
+            } else if (category == 1) {
+                list.add(new NeedApplication(a, new FamilyInfo(random.nextInt(50000), random.nextInt(5))));
+            } else {
+                list.add(new ResearchApplication(a));
+            }
+        }
+        return list;
+    }
+}
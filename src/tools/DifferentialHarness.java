@@ -0,0 +1,545 @@
+package tools;
+
+import model.EvaluationResult;
+import system.CategoryRegistry;
+import system.ExternalResultSorter;
+import system.IngestCheckpoint;
+import system.PipelinedEvaluator;
+import system.ScholarshipSystem;
+import system.WatchMode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Checks that the faster ways of loading and evaluating give exactly the
+ * same output as the original implementation.
+ *
+ * Every case is a small random CSV file built to hit the edge cases of
+ * CSVReader and the category rules: a few applicant IDs with many rows
+ * (so the first 'A' line and the last 'I' line decide), malformed and
+ * unknown rows, bad numbers, Need applicants without an 'I' line, RSV
+ * documents, values right at the thresholds, and CRLF line ends. Some
+ * cases get a Research applicant whose impact factors average exactly
+ * 1.0 or 1.5 on paper, where the order and the way of summing decide
+ * which side of the threshold the double lands on.
+ *
+ * The reference is BaselineReference, a frozen copy of the original
+ * loading and rules that shares no code with the engines. Every engine,
+ * the plain path (loadData, createApplications, evaluateApplications,
+ * getSortedResults) included, must print byte-identical results. On the
+ * first difference the case is shrunk by dropping rows while it still
+ * fails, and the seed and rows are printed.
+ *
+ * The in-memory engines cost well under a millisecond per case; the ones
+ * that start threads or write extra files (slow = true) cost a few
+ * milliseconds, so they run on every 16th case. That keeps a run of
+ * millions of cases in CI to minutes on a few cores.
+ *
+ * Before the random cases, every engine runs the files in Files/regression:
+ * each X.csv there must give exactly the lines of X.expected.txt, which
+ * were written by the original implementation. The reference itself is
+ * checked against them too.
+ *
+ * Usage: java tools.DifferentialHarness [cases] [seed] [threads]
+ * Case i uses the seed (seed + i), so a failing case is replayed with
+ * "1 <printed case seed>". Messages about skipped rows are not printed.
+ */
+public class DifferentialHarness {
+
+    /** Engines that start threads or write extra files run on every 16th case only. */
+    private static final int SLOW_ENGINE_EVERY = 16;
+
+    /** Golden files written by the original implementation. */
+    private static final String REGRESSION_DIR = "Files/regression";
+
+    private static final String[] IDS = {
+        "1101", "1102", "1103", "2201", "2202", "2203", "3301", "3302", "3303", "4401", " 1104 ", "", "11x"
+    };
+    private static final String[] NAMES = {
+        "Liam", "Owen Parker", "Mia  Robinson", " Grace Lefevre ", "", "Ava Reyes", "Luna Green"
+    };
+    private static final String[] GPAS = {
+        "2.50", "2.99", "3.0", "3.00", "3.19", "3.20", "3.5", "4.0", "4.01", "-0.1", "abc", " 3.4 "
+    };
+    private static final String[] INCOMES = {
+        "0", "4000", "9999.99", "10000", "10000.01", "11999", "12000", "14999", "15000", "15001",
+        "17000", "18001", "25000", "-5", "x"
+    };
+    private static final String[] DOCUMENT_TYPES = {"ENR", "REC", "SAV", "RSV", "GRP", "XYZ", " ENR ", "enr"};
+    private static final String[] DURATIONS = {"6", "12", "18", "24", "36", "0", "x"};
+    private static final String[] TITLES = {"Deep Learning", "Vision Transformer Benchmarks", "Graph Methods", ""};
+    private static final String[] IMPACTS = {"0.5", "0.9", "1.0", "1.2", "1.5", "2.0", "3.1", "bad"};
+    private static final String[] FAMILY_INCOMES = {"0", "8000", "21064", "35000", "n/a"};
+    private static final String[] DEPENDENTS = {"0", "1", "2", "3", "4", "x"};
+    private static final String[] TRANSCRIPTS = {"Y", "N", "y", "maybe"};
+
+    /**
+     * Impact factors whose exact average is 1.0 or 1.5. Summed left to
+     * right some land just below the threshold, and a few land below it
+     * with DoubleStream.sum only.
+     */
+    private static final String[][] THRESHOLD_IMPACTS = {
+        {"0.7", "1.6", "0.3", "1.4"},
+        {"1.4", "0.7", "0.9"},
+        {"1.8", "1.0", "1.5", "0.1", "0.6"},
+        {"0.1", "0.2", "2.7"},
+        {"0.1", "1.4", "0.7", "1.4", "2.3", "0.1"},
+        {"1.4", "1.9", "2.4", "0.3"},
+        {"1.7", "2.4", "0.1", "1.8"},
+        {"0.3", "2.3", "2.8", "0.6"},
+        {"1.3", "1.3", "1.9"}
+    };
+
+    /** ID of the applicant that gets a THRESHOLD_IMPACTS set (not in IDS). */
+    private static final String THRESHOLD_ID = "3304";
+
+    public static void main(String[] args) throws Exception {
+        Locale.setDefault(Locale.US);
+
+        long cases = args.length > 0 ? Long.parseLong(args[0]) : 10_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        int threads = args.length > 2 ? Integer.parseInt(args[2])
+                : Math.max(1, Runtime.getRuntime().availableProcessors());
+
+        // The engines report every skipped row; that is expected here
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+
+        AtomicLong next = new AtomicLong();
+        AtomicBoolean failed = new AtomicBoolean();
+        long start = System.nanoTime();
+
+        if (!checkRegressionFiles(Path.of(REGRESSION_DIR))) {
+            System.setErr(err);
+            System.exit(1);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(pool.submit(() -> {
+                Path work = Files.createTempDirectory("differential-");
+                try {
+                    long i;
+                    while (!failed.get() && (i = next.getAndIncrement()) < cases) {
+                        if (!runCase(seed + i, work)) {
+                            failed.set(true);
+                        }
+                    }
+                } finally {
+                    deleteAll(work);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : workers) {
+            f.get();
+        }
+        pool.shutdown();
+        System.setErr(err);
+
+        long done = Math.min(next.get(), cases);
+        System.out.printf("%d cases, %d engines (slow ones on every %dth case), %.1f s%n", done,
+                Engine.values().length, SLOW_ENGINE_EVERY, (System.nanoTime() - start) / 1e9);
+        if (failed.get()) {
+            System.exit(1);
+        }
+        System.out.println("All engines match the reference.");
+    }
+
+    /**
+     * Runs one case on every engine.
+     *
+     * @return false if an engine differs (the case was reported)
+     */
+    private static boolean runCase(long caseSeed, Path work) throws IOException {
+        Random random = new Random(caseSeed);
+        List<String> rows = generate(random);
+        String lineEnd = random.nextInt(8) == 0 ? "\r\n" : "\n";
+        boolean slowCase = Math.floorMod(caseSeed, SLOW_ENGINE_EVERY) == 0;
+        Path csv = writeCsv(rows, lineEnd, work);
+        String expected = reference(csv);
+        for (Engine engine : Engine.values()) {
+            if (engine.slow && !slowCase) {
+                continue;
+            }
+            if (!expected.equals(run(engine, csv, work))) {
+                report(caseSeed, engine, shrink(engine, rows, lineEnd, work), lineEnd, work);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs every engine on every X.csv of the folder and compares the output
+     * with X.expected.txt (one formatted result per line).
+     *
+     * @return false if an engine differs (it was reported)
+     */
+    private static boolean checkRegressionFiles(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            System.out.println("No regression files in " + dir + ", skipped");
+            return true;
+        }
+        List<Path> files = new ArrayList<>();
+        try (var list = Files.newDirectoryStream(dir, "*.csv")) {
+            list.forEach(files::add);
+        }
+        files.sort(null);
+
+        Path work = Files.createTempDirectory("differential-");
+        try {
+            for (Path csv : files) {
+                String fileName = csv.getFileName().toString();
+                Path expectedFile = dir.resolve(fileName.substring(0, fileName.length() - 4) + ".expected.txt");
+                String expected = new String(Files.readAllBytes(expectedFile), StandardCharsets.UTF_8)
+                        .replace("\r\n", "\n");
+                String actual = reference(csv);
+                if (!expected.equals(actual)) {
+                    System.out.println("The reference differs from " + expectedFile + ":");
+                    System.out.print(actual);
+                    System.out.println();
+                    return false;
+                }
+                for (Engine engine : Engine.values()) {
+                    actual = run(engine, csv, work);
+                    if (!expected.equals(actual)) {
+                        System.out.println("Engine " + engine + " differs from " + expectedFile + ":");
+                        System.out.print(actual);
+                        System.out.println();
+                        return false;
+                    }
+                }
+            }
+        } finally {
+            deleteAll(work);
+        }
+        System.out.println(files.size() + " regression files match");
+        return true;
+    }
+
+    private static boolean matches(Engine engine, List<String> rows, String lineEnd, Path work) throws IOException {
+        Path csv = writeCsv(rows, lineEnd, work);
+        String expected = reference(csv);
+        return expected.equals(run(engine, csv, work));
+    }
+
+    /**
+     * @return output of the frozen reference, or the exception text if it failed
+     */
+    private static String reference(Path csv) {
+        try {
+            return BaselineReference.evaluate(csv);
+        } catch (Exception e) {
+            return "Failed: " + e;
+        }
+    }
+
+    /**
+     * @return output of the engine, or the exception text if it failed
+     */
+    private static String run(Engine engine, Path csv, Path work) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            engine.run(csv, work, r -> sb.append(r.getFormattedResult()).append('\n'));
+        } catch (Exception | AssertionError e) {
+            sb.append("Failed: ").append(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Drops single rows as long as the engine still differs.
+     */
+    private static List<String> shrink(Engine engine, List<String> rows, String lineEnd, Path work)
+            throws IOException {
+        List<String> smallest = new ArrayList<>(rows);
+        boolean smaller = true;
+        while (smaller) {
+            smaller = false;
+            for (int i = 0; i < smallest.size(); i++) {
+                List<String> candidate = new ArrayList<>(smallest);
+                candidate.remove(i);
+                if (!matches(engine, candidate, lineEnd, work)) {
+                    smallest = candidate;
+                    smaller = true;
+                    break;
+                }
+            }
+        }
+        return smallest;
+    }
+
+    private static void report(long caseSeed, Engine engine, List<String> rows, String lineEnd, Path work)
+            throws IOException {
+        Path csv = writeCsv(rows, lineEnd, work);
+        System.out.println("Engine " + engine + " differs from the reference, case seed " + caseSeed
+                + (lineEnd.equals("\r\n") ? " (CRLF)" : ""));
+        System.out.println("Rows:");
+        for (String row : rows) {
+            System.out.println("  " + row);
+        }
+        System.out.println("Reference:");
+        System.out.print(reference(csv));
+        System.out.println(engine + ":");
+        System.out.print(run(engine, csv, work));
+        System.out.println();
+    }
+
+    /**
+     * One random CSV file, as rows without line ends.
+     */
+    static List<String> generate(Random random) {
+        // A few IDs per case, so that most IDs get several rows
+        String[] ids = new String[1 + random.nextInt(5)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = pick(random, IDS);
+        }
+
+        int count = random.nextInt(30);
+        List<String> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = pick(random, ids);
+            int kind = random.nextInt(20);
+            String row;
+            if (kind < 4) {
+                row = "A," + id + "," + pick(random, NAMES) + "," + pick(random, GPAS) + "," + pick(random, INCOMES);
+            } else if (kind < 9) {
+                row = "D," + id + "," + pick(random, DOCUMENT_TYPES) + "," + pick(random, DURATIONS);
+            } else if (kind < 11) {
+                row = "T," + id + "," + pick(random, TRANSCRIPTS);
+            } else if (kind < 13) {
+                row = "I," + id + "," + pick(random, FAMILY_INCOMES) + "," + pick(random, DEPENDENTS);
+            } else if (kind < 16) {
+                row = "P," + id + "," + pick(random, TITLES) + "," + pick(random, IMPACTS);
+            } else if (kind == 16) {
+                row = pick(random, new String[]{"A", "D", "P", "I", "T"}) + "," + id; // too few fields
+            } else if (kind == 17) {
+                row = pick(random, new String[]{"", "   ", "garbage", ",", "X," + id + ",1"});
+            } else if (kind == 18) {
+                row = " A , " + id + " ," + pick(random, NAMES) + ", " + pick(random, GPAS) + " ,"
+                        + pick(random, INCOMES);
+            } else {
+                row = "D," + id + ",RSV," + pick(random, DURATIONS); // RSV extends the Research duration
+            }
+            rows.add(row);
+        }
+
+        if (random.nextInt(4) == 0) {
+            addThresholdApplicant(random, rows);
+        }
+        return rows;
+    }
+
+    /**
+     * Adds a Research applicant that passes the general checks and has one
+     * THRESHOLD_IMPACTS set as its publications, each row at a random place.
+     */
+    private static void addThresholdApplicant(Random random, List<String> rows) {
+        List<String> own = new ArrayList<>();
+        own.add("A," + THRESHOLD_ID + ",Noah Clark,3.5,1000");
+        own.add("D," + THRESHOLD_ID + ",ENR,12");
+        own.add("T," + THRESHOLD_ID + ",Y");
+        if (random.nextBoolean()) {
+            own.add("D," + THRESHOLD_ID + ",RSV,12");
+        }
+        for (String impact : THRESHOLD_IMPACTS[random.nextInt(THRESHOLD_IMPACTS.length)]) {
+            own.add("P," + THRESHOLD_ID + ",Paper," + impact);
+        }
+        // The 'A' line stays first of its ID; the impacts keep their order
+        int position = 0;
+        for (String row : own) {
+            position += random.nextInt(rows.size() - position + 1);
+            rows.add(position++, row);
+        }
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static Path writeCsv(List<String> rows, String lineEnd, Path work) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (String row : rows) {
+            sb.append(row).append(lineEnd);
+        }
+        Path csv = work.resolve("case.csv");
+        Files.write(csv, sb.toString().getBytes(StandardCharsets.UTF_8));
+        return csv;
+    }
+
+    private static void deleteAll(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        List<Path> paths = new ArrayList<>();
+        try (var walk = Files.walk(dir)) {
+            walk.forEach(paths::add);
+        }
+        paths.sort(Comparator.reverseOrder()); // children before their folder
+        for (Path p : paths) {
+            Files.deleteIfExists(p);
+        }
+    }
+
+    /**
+     * The ways of getting the sorted results of one CSV file.
+     */
+    private enum Engine {
+        PLAIN(false) {
+            @Override
+            void run(Path csv, Path work, Consumer<EvaluationResult> out) {
+                ScholarshipSystem system = new ScholarshipSystem();
+                system.loadData(csv.toString());
+                system.createApplications();
+                system.evaluateApplications();
+                system.getSortedResults().forEach(out);
+            }
+        },
+        PRE_SCREEN_ONE_PASS(false) {
+            @Override
+            void run(Path csv, Path work, Consumer<EvaluationResult> out) {
+                ScholarshipSystem system = new ScholarshipSystem();
+                system.setPreScreening(true);
+                system.loadData(csv.toString());
+                system.createAndEvaluateApplications(false);
+                system.getSortedResults().forEach(out);
+            }
+        },
+        BATCH(false) {
+            @Override
+            void run(Path csv, Path work, Consumer<EvaluationResult> out) {
+                ScholarshipSystem system = new ScholarshipSystem();
+                system.setBatchEvaluation(true);
+                system.loadData(csv.toString());
+                system.createApplications();
+                system.evaluateApplications();
+                system.getSortedResults().forEach(out);
+            }
+        },
+        OFF_HEAP(false) {
+            @Override
+            void run(Path csv, Path work, Consumer<EvaluationResult> out) {
+                ScholarshipSystem system = new ScholarshipSystem();
+                system.setPreScreening(true);
+                system.setOffHeap(true);
+                system.loadData(csv.toString());
+                system.createAndEvaluateApplications(false);
+                system.getSortedResults().forEach(out);
+            }
+        },
+        STREAM(false) {
+            @Override
+            void run(Path csv, Path work, Consumer<EvaluationResult> out) throws IOException {
+                ScholarshipSystem system = new ScholarshipSystem();
+                try (var in = Files.newInputStream(csv)) {
+                    system.loadData(in);
+                }
+                system.createAndEvaluateApplications(false);
+                system.getSortedResults().forEach(out);
+            }
+        },
+        PARALLEL_SHARDS(true) {
+            @Override
+            void run(Path csv, Path work, Consumer<EvaluationResult> out) throws IOException {
+                // Three shard files that are read in parallel and joined in name order
+                Path dir = work.resolve("shards");
+                deleteAll(dir);
+                Files.createDirectories(dir);
+                byte[] bytes = Files.readAllBytes(csv);
+                int[] cuts = {0, lineStart(bytes, bytes.length / 3), lineStart(bytes, 2 * bytes.length / 3),
+                        bytes.length};
+                for (int s = 0; s < 3; s++) {
+                    Files.write(dir.resolve("part-" + s + ".csv"), Arrays.copyOfRange(bytes, cuts[s], cuts[s + 1]));
+                }
+
+                ScholarshipSystem system = new ScholarshipSystem();
+                system.loadData(dir.toString());
+                system.createAndEvaluateApplications(false);
+                system.getSortedResults().forEach(out);
+            }
+        },
+        PIPELINE(true) {
+            @Override
+            void run(Path csv, Path work, Consumer<EvaluationResult> out) {
+                new PipelinedEvaluator(CategoryRegistry.withDefaults(), 2, 4).run(csv.toString(), true, out);
+            }
+        },
+        EXTERNAL_SORT(true) {
+            @Override
+            void run(Path csv, Path work, Consumer<EvaluationResult> out) throws IOException {
+                try (ExternalResultSorter sorter = new ExternalResultSorter(work, 2)) {
+                    ScholarshipSystem system = new ScholarshipSystem();
+                    system.setExternalSort(sorter);
+                    system.loadData(csv.toString());
+                    system.createAndEvaluateApplications(false);
+                    system.writeSortedResults(out);
+                }
+            }
+        },
+        CHECKPOINT_RESUME(true) {
+            @Override
+            void run(Path csv, Path work, Consumer<EvaluationResult> out) throws IOException {
+                // The first load writes small segments. The checkpoint is then cut at a
+                // point that depends on the case (between segments or inside one), like
+                // a load that was stopped, so the second one resumes in the middle of the file.
+                Path checkpoint = work.resolve("case.ckpt");
+                Files.deleteIfExists(checkpoint);
+                ScholarshipSystem first = new ScholarshipSystem();
+                first.setCheckpoint(new IngestCheckpoint(checkpoint, 16));
+                first.loadData(csv.toString());
+                byte[] saved = Files.readAllBytes(checkpoint);
+                int cut = new Random(Arrays.hashCode(Files.readAllBytes(csv))).nextInt(saved.length + 1);
+                Files.write(checkpoint, Arrays.copyOf(saved, cut));
+
+                ScholarshipSystem system = new ScholarshipSystem();
+                system.setCheckpoint(new IngestCheckpoint(checkpoint, 16));
+                system.loadData(csv.toString());
+                system.createAndEvaluateApplications(false);
+                system.getSortedResults().forEach(out);
+            }
+        },
+        WATCH_SNAPSHOT(false) {
+            @Override
+            void run(Path csv, Path work, Consumer<EvaluationResult> out) throws IOException {
+                new WatchMode(csv, CategoryRegistry.withDefaults(), out).update();
+            }
+        };
+
+        final boolean slow;
+
+        Engine(boolean slow) {
+            this.slow = slow;
+        }
+
+        abstract void run(Path csv, Path work, Consumer<EvaluationResult> out) throws IOException;
+
+        /**
+         * @return index of the first byte of the line that the position is in
+         */
+        static int lineStart(byte[] bytes, int position) {
+            while (position > 0 && bytes[position - 1] != '\n') {
+                position--;
+            }
+            return position;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Measures the wall-clock time of short runs of system.Main, with and
+ * without an application class-data-sharing (AppCDS) archive.
+ *
+ * The archive is created by a first run with -XX:ArchiveClassesAtExit
+ * (JDK 13+), so no build step is needed. CDS only archives classes from
+ * JAR files, so a class directory (for example the javac output) is
+ * first packed into a JAR next to the archive. Every run is a new JVM,
+ * which is what a small per-department file costs in practice.
+ *
+ * Usage: java tools.StartupBenchmark [runs] [archive file] [-- Main arguments]
+ * Defaults: 10 runs, startup.jsa in the temp directory, the default data file.
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Locale.setDefault(Locale.US);
+
+        int runs = 10;
+        Path archive = Path.of(System.getProperty("java.io.tmpdir"), "startup.jsa");
+        List<String> mainArgs = new ArrayList<>();
+
+        int i = 0;
+        if (i < args.length && !args[i].equals("--")) {
+            runs = Integer.parseInt(args[i++]);
+        }
+        if (i < args.length && !args[i].equals("--")) {
+            archive = Path.of(args[i++]);
+        }
+        if (i < args.length && args[i].equals("--")) {
+            mainArgs.addAll(Arrays.asList(args).subList(i + 1, args.length));
+        }
+        if (runs < 1) {
+            System.err.println("Runs must be at least 1");
+            System.exit(2);
+        }
+
+        String classPath = jarClassPath(archive.resolveSibling("startup-classes.jar"));
+
+        // Create the archive from one training run
+        Files.deleteIfExists(archive);
+        runMain(classPath, List.of("-XX:ArchiveClassesAtExit=" + archive), mainArgs);
+        if (!Files.exists(archive)) {
+            System.err.println("The JVM did not create " + archive + " (AppCDS needs JDK 13 or newer)");
+            System.exit(2);
+        }
+
+        runMain(classPath, List.of(), mainArgs); // Warm the file system cache
+
+        long[] plain = new long[runs];
+        long[] shared = new long[runs];
+        for (int r = 0; r < runs; r++) {
+            // Alternate the two modes so that machine noise affects both the same way
+            plain[r] = runMain(classPath, List.of("-Xshare:auto"), mainArgs);
+            shared[r] = runMain(classPath, List.of("-XX:SharedArchiveFile=" + archive), mainArgs);
+        }
+
+        System.out.println("Startup benchmark: " + runs + " runs of system.Main " + String.join(" ", mainArgs));
+        print("default CDS", plain);
+        print("AppCDS", shared);
+    }
+
+    /**
+     * Returns the class path of this JVM with every directory packed into a JAR.
+     *
+     * @param jar where the classes of the first directory go (further ones get a number)
+     */
+    private static String jarClassPath(Path jar) throws IOException {
+        List<String> entries = new ArrayList<>();
+        int directories = 0;
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            Path path = Path.of(entry);
+            if (!Files.isDirectory(path)) {
+                entries.add(entry);
+                continue;
+            }
+            Path target = directories == 0 ? jar
+                    : jar.resolveSibling(jar.getFileName().toString().replace(".jar", "-" + directories + ".jar"));
+            directories++;
+            packDirectory(path, target);
+            entries.add(target.toString());
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    private static void packDirectory(Path directory, Path jar) throws IOException {
+        try (OutputStream file = Files.newOutputStream(jar);
+             JarOutputStream out = new JarOutputStream(file);
+             Stream<Path> files = Files.walk(directory)) {
+            for (Path f : (Iterable<Path>) files.filter(Files::isRegularFile).sorted()::iterator) {
+                out.putNextEntry(new JarEntry(directory.relativize(f).toString().replace(File.separatorChar, '/')));
+                Files.copy(f, out);
+                out.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Starts system.Main in a new JVM and waits for it.
+     *
+     * @return wall-clock time in nanoseconds
+     */
+    private static long runMain(String classPath, List<String> jvmOptions, List<String> mainArgs)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(classPath);
+        command.add("system.Main");
+        command.addAll(mainArgs);
+
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        builder.redirectError(ProcessBuilder.Redirect.to(new File(nullDevice())));
+
+        long start = System.nanoTime();
+        int exit = builder.start().waitFor();
+        long time = System.nanoTime() - start;
+        if (exit != 0) {
+            throw new IOException("system.Main exited with code " + exit + ": " + command);
+        }
+        return time;
+    }
+
+    private static String nullDevice() {
+        return System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null";
+    }
+
+    private static void print(String label, long[] times) {
+        long[] sorted = times.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-12s min %7.1f ms, median %7.1f ms, max %7.1f ms%n", label,
+                sorted[0] / 1e6, sorted[sorted.length / 2] / 1e6, sorted[sorted.length - 1] / 1e6);
+    }
+}
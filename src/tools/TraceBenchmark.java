@@ -0,0 +1,134 @@
+package tools;
+
+import applications.DecisionTrace;
+import applications.ScholarshipCategoryProvider;
+import enums.DocumentType;
+import model.Applicant;
+import model.Document;
+import model.FamilyInfo;
+import system.CategoryRegistry;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Measures the cost of DecisionTrace on the evaluation rules.
+ *
+ * DecisionTrace.ENABLED is fixed when the JVM starts, so every mode runs
+ * in its own JVM:
+ * - off:      tracing disabled (the guarded code should be removed by the JIT)
+ * - on, none: tracing enabled, but no applicant selected
+ * - on, all:  tracing enabled and every decision traced (traces are dropped)
+ * "off" should be as fast as the rules without any trace code.
+ *
+ * Usage: java tools.TraceBenchmark [applicants]
+ */
+public class TraceBenchmark {
+
+    private static final int WARMUP_ROUNDS = 30;
+    private static final int MEASURED_ROUNDS = 30;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Locale.setDefault(Locale.US);
+
+        if (args.length > 0 && args[0].equals("child")) {
+            runChild(Integer.parseInt(args[1]));
+            return;
+        }
+
+        int applicants = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        System.out.println("Trace benchmark: " + applicants + " applicants, ns per decision (median of "
+                + MEASURED_ROUNDS + " rounds)");
+        System.out.println("off        " + runJvm(applicants));
+        System.out.println("on, none   " + runJvm(applicants, "-Dscholarship.trace=true"));
+        System.out.println("on, all    " + runJvm(applicants, "-Dscholarship.trace=true",
+                "-Dscholarship.trace.sample=1"));
+    }
+
+    /**
+     * Runs the child mode in a new JVM and returns its result line.
+     */
+    private static String runJvm(int applicants, String... jvmOptions) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(Arrays.asList(jvmOptions));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(TraceBenchmark.class.getName());
+        command.add("child");
+        command.add(String.valueOf(applicants));
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String line;
+        String last = "";
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            while ((line = out.readLine()) != null) {
+                last = line;
+            }
+        }
+        if (process.waitFor() != 0) {
+            throw new IOException("Benchmark JVM failed: " + last);
+        }
+        return last;
+    }
+
+    private static void runChild(int count) {
+        DecisionTrace.setSink(trace -> { }); // Measure the recording, not the printing
+
+        CategoryRegistry categories = CategoryRegistry.withDefaults();
+        Applicant[] applicants = new Applicant[count];
+        FamilyInfo[] familyInfo = new FamilyInfo[count];
+        ScholarshipCategoryProvider[] providers = new ScholarshipCategoryProvider[count];
+        Random random = new Random(42);
+        String[] prefixes = {"11", "22", "33"};
+
+        for (int i = 0; i < count; i++) {
+            String id = prefixes[i % 3] + String.format("%06d", i);
+            Applicant a = new Applicant(id, "Applicant " + i, 2.0 + random.nextDouble() * 2.0,
+                    1000 + random.nextInt(20000));
+            a.addDocument(new Document(DocumentType.ENR, 12));
+            a.setTranscriptValid(random.nextInt(10) != 0);
+            if (random.nextBoolean()) {
+                a.addDocument(new Document(DocumentType.REC, 12));
+            }
+            if (random.nextBoolean()) {
+                a.addDocument(new Document(DocumentType.SAV, 12));
+            }
+            if (random.nextBoolean()) {
+                a.addDocument(new Document(DocumentType.RSV, 12));
+            }
+            for (int p = random.nextInt(3); p > 0; p--) {
+                a.addPublication("Paper " + p, random.nextDouble() * 3.0);
+            }
+            applicants[i] = a;
+            familyInfo[i] = new FamilyInfo(random.nextInt(50000), random.nextInt(5));
+            providers[i] = categories.find(id);
+        }
+
+        long[] times = new long[MEASURED_ROUNDS];
+        int accepted = 0; // Keeps the results alive
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                if (providers[i].evaluate(applicants[i], familyInfo[i]).isAccepted()) {
+                    accepted++;
+                }
+            }
+            long time = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {
+                times[round - WARMUP_ROUNDS] = time;
+            }
+        }
+
+        Arrays.sort(times);
+        System.out.printf("%8.1f ns  (accepted %d)%n", (double) times[MEASURED_ROUNDS / 2] / count,
+                accepted / (WARMUP_ROUNDS + MEASURED_ROUNDS));
+    }
+}